@@ -629,6 +629,7 @@ public class BlockEventHandler implements Listener
 
         // Assemble list of potentially intersecting claims from chunks interacted with.
         ArrayList<Claim> intersectable = new ArrayList<>();
+        World pistonWorld = pistonBlock.getWorld();
         int chunkXMax = movedBlocks.getMaxX() >> 4;
         int chunkZMax = movedBlocks.getMaxZ() >> 4;
 
@@ -636,13 +637,14 @@ public class BlockEventHandler implements Listener
         {
             for (int chunkZ = movedBlocks.getMinZ() >> 4; chunkZ <= chunkZMax; ++chunkZ)
             {
-                ArrayList<Claim> chunkClaims = dataStore.chunksToClaimsMap.get(DataStore.getChunkHash(chunkX, chunkZ));
+                // Chunk index is per-world, so no world check is required.
+                Claim[] chunkClaims = dataStore.claimIndex.getClaimsInChunk(pistonWorld, chunkX, chunkZ);
                 if (chunkClaims == null) continue;
 
                 for (Claim claim : chunkClaims)
                 {
-                    // Ensure claim is not piston claim and is in same world.
-                    if (pistonClaim != claim && pistonBlock.getWorld().equals(claim.getLesserBoundaryCorner().getWorld()))
+                    // Ensure claim is not piston claim.
+                    if (pistonClaim != claim)
                         intersectable.add(claim);
                 }
             }
@@ -845,7 +847,8 @@ public class BlockEventHandler implements Listener
         if (spreadEvent.getFace() == BlockFace.DOWN) return;
 
         //don't track in worlds where claims are not enabled
-        if (!GriefPrevention.instance.claimsEnabledForWorld(spreadEvent.getBlock().getWorld())) return;
+        WorldRules worldRules = GriefPrevention.instance.getWorldRules(spreadEvent.getBlock().getWorld());
+        if (!worldRules.claimsEnabled) return;
 
         //where to?
         Block toBlock = spreadEvent.getToBlock();
@@ -867,7 +870,7 @@ public class BlockEventHandler implements Listener
         }
 
         //otherwise if creative mode world, don't flow
-        else if (GriefPrevention.instance.creativeRulesApply(toLocation))
+        else if (worldRules.creativeRules)
         {
             spreadEvent.setCancelled(true);
         }
@@ -937,7 +940,8 @@ public class BlockEventHandler implements Listener
     public void onDispense(BlockDispenseEvent dispenseEvent)
     {
         //don't track in worlds where claims are not enabled
-        if (!GriefPrevention.instance.claimsEnabledForWorld(dispenseEvent.getBlock().getWorld())) return;
+        WorldRules worldRules = GriefPrevention.instance.getWorldRules(dispenseEvent.getBlock().getWorld());
+        if (!worldRules.claimsEnabled) return;
 
         //from where?
         Block fromBlock = dispenseEvent.getBlock();
@@ -952,7 +956,7 @@ public class BlockEventHandler implements Listener
 
         //into wilderness is NOT OK in creative mode worlds
         Material materialDispensed = dispenseEvent.getItem().getType();
-        if ((materialDispensed == Material.WATER_BUCKET || materialDispensed == Material.LAVA_BUCKET) && GriefPrevention.instance.creativeRulesApply(dispenseEvent.getBlock().getLocation()) && toClaim == null)
+        if ((materialDispensed == Material.WATER_BUCKET || materialDispensed == Material.LAVA_BUCKET) && worldRules.creativeRules && toClaim == null)
         {
             dispenseEvent.setCancelled(true);
             return;
@@ -994,11 +998,20 @@ public class BlockEventHandler implements Listener
             rootOwnerName = rootClaim.getOwnerName();
         }
 
-        //for each block growing
-        for (int i = 0; i < growEvent.getBlocks().size(); i++)
+        //find the claims for every growing block at once
+        List<BlockState> blocks = growEvent.getBlocks();
+        long[] positions = new long[blocks.size()];
+        for (int i = 0; i < positions.length; i++)
+        {
+            BlockState block = blocks.get(i);
+            positions[i] = DataStore.packBlockPosition(block.getX(), block.getY(), block.getZ());
+        }
+        Claim[] blockClaims = this.dataStore.getClaimsAt(growEvent.getWorld(), positions, false, false);
+
+        //for each block growing, from the end so removals don't shift the blocks still to check
+        for (int i = blockClaims.length - 1; i >= 0; i--)
         {
-            BlockState block = growEvent.getBlocks().get(i);
-            Claim blockClaim = this.dataStore.getClaimAt(block.getLocation(), false, rootClaim);
+            Claim blockClaim = blockClaims[i];
 
             //if it's growing into a claim
             if (blockClaim != null)
@@ -1006,7 +1019,7 @@ public class BlockEventHandler implements Listener
                 //if there's no owner for the new tree, or the owner for the new tree is different from the owner of the claim
                 if (rootOwnerName == null || !rootOwnerName.equals(blockClaim.getOwnerName()))
                 {
-                    growEvent.getBlocks().remove(i--);
+                    blocks.remove(i);
                 }
             }
         }
@@ -41,6 +41,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -55,9 +56,19 @@ public class Claim
 {
     //two locations, which together define the boundaries of the claim
     //note that the upper Y value is always ignored, because claims ALWAYS extend up to the sky
+    //always change them through setBoundaries() or call updateBounds() afterward, so the cached bounds below stay in sync
     Location lesserBoundaryCorner;
     Location greaterBoundaryCorner;
 
+    //cached copies of the boundaries, so geometry checks don't need to read the corner locations or allocate
+    private World world;
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+
     //modification date.  this comes from the file timestamp during load, and is updated with runtime changes
     public Date modifiedDate;
 
@@ -69,10 +80,22 @@ public class Claim
     public UUID ownerID;
 
     //list of players who (beyond the claim owner) have permission to grant permissions in this claim
+    //change this through setPermission() and dropPermission(), so managerIDs below stays in sync
     public ArrayList<String> managers = new ArrayList<>();
 
+    //the managers which are players, so permission checks don't need to turn UUIDs into strings
+    private HashSet<UUID> managerIDs = new HashSet<>();
+
     //permissions for this claim, see ClaimPermission class
-    private HashMap<String, ClaimPermission> playerIDToClaimPermissionMap = new HashMap<>();
+    //players are keyed by UUID, everything else ("public", [permission.node]) by name
+    private HashMap<UUID, ClaimPermission> playerIDToClaimPermissionMap = new HashMap<>();
+    private HashMap<String, ClaimPermission> namedClaimPermissionMap = new HashMap<>();
+
+    //changes whenever anything affecting permission decisions in this claim does, see PermissionDecisionCache
+    private int trustVersion = 0;
+
+    //[permission.node] trust entries, parsed when first needed after trust changes
+    private NodeTrust nodeTrust = null;
 
     //whether or not this claim is in the data store
     //if a claim instance isn't in the data store, it isn't "active" - players can't interract with it
@@ -93,6 +116,10 @@ public class Claim
     //note subdivisions themselves never have children
     public ArrayList<Claim> children = new ArrayList<>();
 
+    //read-only copy of children with a spatial index over them, republished by the data store whenever it changes
+    //the children list or moves a child.  lookups which don't hold the data store's lock read this instead of the live list
+    private volatile ClaimSubdivisionIndex subdivisionIndex = null;
+
     //information about a siege involving this claim.  null means no siege is impacting this claim
     public SiegeData siegeData = null;
 
@@ -220,8 +247,7 @@ public class Claim
         this.id = id;
 
         //store corners
-        this.lesserBoundaryCorner = lesserBoundaryCorner;
-        this.greaterBoundaryCorner = greaterBoundaryCorner;
+        this.setBoundaries(lesserBoundaryCorner, greaterBoundaryCorner);
 
         //owner
         this.ownerID = ownerID;
@@ -246,7 +272,7 @@ public class Claim
         {
             if (managerID != null && !managerID.isEmpty())
             {
-                this.managers.add(managerID);
+                this.addManager(managerID);
             }
         }
 
@@ -261,12 +287,13 @@ public class Claim
     //produces a copy of a claim.
     public Claim(Claim claim) {
         this.modifiedDate = claim.modifiedDate;
-        this.lesserBoundaryCorner = claim.greaterBoundaryCorner.clone();
-        this.greaterBoundaryCorner = claim.greaterBoundaryCorner.clone();
+        this.setBoundaries(claim.lesserBoundaryCorner.clone(), claim.greaterBoundaryCorner.clone());
         this.id = claim.id;
         this.ownerID = claim.ownerID;
         this.managers = new ArrayList<>(claim.managers);
+        this.managerIDs = new HashSet<>(claim.managerIDs);
         this.playerIDToClaimPermissionMap = new HashMap<>(claim.playerIDToClaimPermissionMap);
+        this.namedClaimPermissionMap = new HashMap<>(claim.namedClaimPermissionMap);
         this.inDataStore = false; //since it's a copy of a claim, not in datastore!
         this.areExplosivesAllowed = claim.areExplosivesAllowed;
         this.parent = claim.parent;
@@ -276,6 +303,28 @@ public class Claim
         this.doorsOpen = claim.doorsOpen;
     }
 
+    //replaces the corners and updates the cached bounds
+    void setBoundaries(Location lesserBoundaryCorner, Location greaterBoundaryCorner)
+    {
+        this.lesserBoundaryCorner = lesserBoundaryCorner;
+        this.greaterBoundaryCorner = greaterBoundaryCorner;
+        this.updateBounds();
+    }
+
+    //refreshes the cached bounds after the corners changed
+    void updateBounds()
+    {
+        this.world = this.lesserBoundaryCorner.getWorld();
+        this.minX = this.lesserBoundaryCorner.getBlockX();
+        this.minY = this.lesserBoundaryCorner.getBlockY();
+        this.minZ = this.lesserBoundaryCorner.getBlockZ();
+        this.maxX = this.greaterBoundaryCorner.getBlockX();
+        this.maxZ = this.greaterBoundaryCorner.getBlockZ();
+
+        //claims always extend up to the sky
+        this.maxY = this.world != null ? this.world.getMaxHeight() : this.greaterBoundaryCorner.getBlockY();
+    }
+
     //measurements.  all measurements are in blocks
     public int getArea()
     {
@@ -303,6 +352,19 @@ public class Claim
     public void setSubclaimRestrictions(boolean inheritNothing)
     {
         this.inheritNothing = inheritNothing;
+        this.trustChanged();
+    }
+
+    //called whenever trust, ownership or inheritance changes, so remembered permission decisions are discarded
+    void trustChanged()
+    {
+        this.trustVersion++;
+        this.nodeTrust = null;
+    }
+
+    int getTrustVersion()
+    {
+        return this.trustVersion;
     }
 
     //distance check for claims, distance in this case is a band around the outside of the claim rather then euclidean distance
@@ -392,9 +454,9 @@ public class Claim
     {
         if (uuid.equals(this.getOwnerID())) return true;
 
-        if (level == ClaimPermission.Manage) return this.managers.contains(uuid.toString());
+        if (level == ClaimPermission.Manage) return this.managerIDs.contains(uuid);
 
-        return level.isGrantedBy(this.playerIDToClaimPermissionMap.get(uuid.toString()));
+        return level.isGrantedBy(this.playerIDToClaimPermissionMap.get(uuid));
     }
 
     public boolean hasExplicitPermission(Player player, ClaimPermission level)
@@ -402,35 +464,78 @@ public class Claim
         // Check explicit ClaimPermission for UUID
         if (this.hasExplicitPermission(player.getUniqueId(), level)) return true;
 
+        // Check permission-based ClaimPermission
+        NodeTrust nodeTrust = this.getNodeTrust();
+
         // Special case managers - a separate list is used.
-        if (level == ClaimPermission.Manage)
-        {
-            for (String node : this.managers)
-            {
-                // Ensure valid permission format for permissions - [permission.node]
-                if (node.length() < 3 || node.charAt(0) != '[' || node.charAt(node.length() - 1) != ']') continue;
-                // Check if player has node
-                if (player.hasPermission(node.substring(1, node.length() - 1))) return true;
-            }
-            return false;
-        }
+        String[] nodes = level == ClaimPermission.Manage ? nodeTrust.managerNodes : nodeTrust.nodes;
+        if (nodes.length == 0) return false;
 
-        // Check permission-based ClaimPermission
-        for (Map.Entry<String, ClaimPermission> stringToPermission : this.playerIDToClaimPermissionMap.entrySet())
+        PlayerData playerData = GriefPrevention.instance.dataStore.getPlayerData(player.getUniqueId());
+        for (int i = 0; i < nodes.length; i++)
         {
-            String node = stringToPermission.getKey();
-            // Ensure valid permission format for permissions - [permission.node]
-            if (node.length() < 3 || node.charAt(0) != '[' || node.charAt(node.length() - 1) != ']') continue;
-
             // Check if level is high enough and player has node
-            if (level.isGrantedBy(stringToPermission.getValue())
-                    && player.hasPermission(node.substring(1, node.length() - 1)))
+            if ((level == ClaimPermission.Manage || level.isGrantedBy(nodeTrust.levels[i]))
+                    && playerData.hasPermissionNode(player, nodes[i]))
                 return true;
         }
 
         return false;
     }
 
+    //[permission.node] trust entries with the brackets removed
+    private static final class NodeTrust
+    {
+        final String[] managerNodes;
+        final String[] nodes;
+        final ClaimPermission[] levels;
+
+        NodeTrust(String[] managerNodes, String[] nodes, ClaimPermission[] levels)
+        {
+            this.managerNodes = managerNodes;
+            this.nodes = nodes;
+            this.levels = levels;
+        }
+    }
+
+    //parses the [permission.node] entries out of the trust lists, so permission checks don't need to look at every entry
+    private NodeTrust getNodeTrust()
+    {
+        NodeTrust nodeTrust = this.nodeTrust;
+        if (nodeTrust != null) return nodeTrust;
+
+        ArrayList<String> managerNodes = new ArrayList<>();
+        for (String manager : this.managers)
+        {
+            String node = parseNode(manager);
+            if (node != null) managerNodes.add(node);
+        }
+
+        ArrayList<String> nodes = new ArrayList<>();
+        ArrayList<ClaimPermission> levels = new ArrayList<>();
+        for (Map.Entry<String, ClaimPermission> stringToPermission : this.namedClaimPermissionMap.entrySet())
+        {
+            String node = parseNode(stringToPermission.getKey());
+            if (node == null) continue;
+
+            nodes.add(node);
+            levels.add(stringToPermission.getValue());
+        }
+
+        nodeTrust = new NodeTrust(managerNodes.toArray(new String[0]), nodes.toArray(new String[0]), levels.toArray(new ClaimPermission[0]));
+        this.nodeTrust = nodeTrust;
+        return nodeTrust;
+    }
+
+    //gets the node from a trust entry in the [permission.node] format, or null for any other entry
+    private static String parseNode(String entry)
+    {
+        // Ensure valid permission format for permissions - [permission.node]
+        if (entry.length() < 3 || entry.charAt(0) != '[' || entry.charAt(entry.length() - 1) != ']') return null;
+
+        return entry.substring(1, entry.length() - 1);
+    }
+
     /**
      * Check whether or not a Player has a certain level of trust.
      *
@@ -455,6 +560,10 @@ public class Claim
      */
     Supplier<String> checkPermission(Player player, ClaimPermission permission, Event event, Supplier<String> denialOverride)
     {
+        // Without listeners, the event can't change the outcome, so skip building and firing it.
+        if (!hasPermissionCheckListeners())
+            return overrideDenial(getCachedDefaultDenial(player, player.getUniqueId(), permission, event), denialOverride);
+
         return callPermissionCheck(new ClaimPermissionCheckEvent(player, this, permission, event), denialOverride);
     }
 
@@ -468,9 +577,37 @@ public class Claim
      */
     public Supplier<String> checkPermission(UUID uuid, ClaimPermission permission, Event event)
     {
+        // Without listeners, the event can't change the outcome, so skip building and firing it.
+        if (!hasPermissionCheckListeners())
+            return getCachedDefaultDenial(Bukkit.getPlayer(uuid), uuid, permission, event);
+
         return callPermissionCheck(new ClaimPermissionCheckEvent(uuid, this, permission, event), null);
     }
 
+    /**
+     * Check whether anything listens for {@link ClaimPermissionCheckEvent ClaimPermissionCheckEvents}.
+     *
+     * @return true if the event needs to be fired
+     */
+    private static boolean hasPermissionCheckListeners()
+    {
+        return ClaimPermissionCheckEvent.getHandlerList().getRegisteredListeners().length > 0;
+    }
+
+    /**
+     * Replace a denial with a clarifying message, if one is provided.
+     *
+     * @param denial the denial reason or null if permission is granted
+     * @param denialOverride a message overriding the default denial for clarity
+     * @return the denial reason or null if permission is granted
+     */
+    private static Supplier<String> overrideDenial(Supplier<String> denial, Supplier<String> denialOverride)
+    {
+        if (denial != null && denialOverride != null) return denialOverride;
+
+        return denial;
+    }
+
     /**
      * Helper method for calling a ClaimPermissionCheckEvent.
      *
@@ -481,12 +618,10 @@ public class Claim
     private Supplier<String> callPermissionCheck(ClaimPermissionCheckEvent event, Supplier<String> denialOverride)
     {
         // Set denial message (if any) using default behavior.
-        Supplier<String> defaultDenial = getDefaultDenial(event.getCheckedPlayer(), event.getCheckedUUID(),
+        Supplier<String> defaultDenial = getCachedDefaultDenial(event.getCheckedPlayer(), event.getCheckedUUID(),
                 event.getRequiredPermission(), event.getTriggeringEvent());
         // If permission is denied and a clarifying override is provided, use override.
-        if (defaultDenial != null && denialOverride != null) {
-            defaultDenial = denialOverride;
-        }
+        defaultDenial = overrideDenial(defaultDenial, denialOverride);
 
         event.setDenialReason(defaultDenial);
 
@@ -495,6 +630,48 @@ public class Claim
         return event.getDenialReason();
     }
 
+    /**
+     * Get the default reason for denial of a ClaimPermission, reusing the player's recent decision for this claim if possible.
+     *
+     * @param player the Player being checked for permissions
+     * @param uuid the UUID being checked for permissions
+     * @param permission the ClaimPermission required
+     * @param event the Event triggering the permission check
+     * @return the denial reason or null if permission is granted
+     */
+    private Supplier<String> getCachedDefaultDenial(Player player, UUID uuid, ClaimPermission permission, Event event)
+    {
+        // Only online players' decisions in stored claims are cached, and only on the main thread, which owns the caches.
+        long lifetime = GriefPrevention.instance.config_claims_permissionCacheMillis;
+        if (player == null || !this.inDataStore || lifetime <= 0 || !Bukkit.isPrimaryThread())
+            return getDefaultDenial(player, uuid, permission, event);
+
+        // Building also depends on PvP combat and the block involved, which can't be cached.
+        PlayerData playerData = GriefPrevention.instance.dataStore.getPlayerData(uuid);
+        if (permission == ClaimPermission.Build && (playerData.inPvpCombat() || isFarmingEvent(event)))
+            return getDefaultDenial(player, uuid, permission, event);
+
+        long now = System.currentTimeMillis();
+        Boolean allowed = playerData.permissionDecisions.get(this, permission, now);
+        if (allowed != null) return allowed ? null : getInheritedDenial(player, permission);
+
+        Supplier<String> denial = getDefaultDenial(player, uuid, permission, event);
+        playerData.permissionDecisions.put(this, permission, denial == null, now, lifetime);
+        return denial;
+    }
+
+    /**
+     * Check whether an Event is a block being broken or placed which may be exempt for farming.
+     *
+     * @param event the Event triggering the permission check
+     * @return true if the farming exemption may apply
+     */
+    private static boolean isFarmingEvent(Event event)
+    {
+        return (event instanceof BlockBreakEvent || event instanceof BlockPlaceEvent)
+                && placeableForFarming(((BlockEvent) event).getBlock().getType());
+    }
+
     /**
      * Get the default reason for denial of a ClaimPermission.
      *
@@ -534,7 +711,7 @@ public class Claim
         }
 
         // Check for public permission.
-        if (permission.isGrantedBy(this.playerIDToClaimPermissionMap.get("public"))) return null;
+        if (permission.isGrantedBy(this.namedClaimPermissionMap.get("public"))) return null;
 
         // Special building-only rules.
         if (permission == ClaimPermission.Build)
@@ -564,6 +741,36 @@ public class Claim
         }
 
         // Catch-all error message for all other cases.
+        return getDenial(player, permission);
+    }
+
+    /**
+     * Get the catch-all denial reason of the claim which decides permissions here, following inheritance.
+     *
+     * @param player the Player being checked for permissions
+     * @param permission the ClaimPermission required
+     * @return the denial reason
+     */
+    private Supplier<String> getInheritedDenial(Player player, ClaimPermission permission)
+    {
+        Claim claim = this;
+        while (claim.parent != null && !claim.inheritNothing)
+        {
+            claim = claim.parent;
+        }
+
+        return claim.getDenial(player, permission);
+    }
+
+    /**
+     * Get the catch-all denial reason for a ClaimPermission.
+     *
+     * @param player the Player being checked for permissions
+     * @param permission the ClaimPermission required
+     * @return the denial reason
+     */
+    private Supplier<String> getDenial(Player player, ClaimPermission permission)
+    {
         return () ->
         {
             String reason = GriefPrevention.instance.dataStore.getMessage(permission.getDenialMessage(), this.getOwnerName());
@@ -625,7 +832,11 @@ public class Claim
     {
         if (playerID == null || playerID.isEmpty()) return null;
 
-        return this.playerIDToClaimPermissionMap.get(playerID.toLowerCase());
+        playerID = playerID.toLowerCase();
+        UUID uuid = parseTrusteeID(playerID);
+        if (uuid != null) return this.playerIDToClaimPermissionMap.get(uuid);
+
+        return this.namedClaimPermissionMap.get(playerID);
     }
 
     //grants a permission for a player or the public
@@ -635,18 +846,75 @@ public class Claim
 
         if (playerID == null || playerID.isEmpty()) return;
 
+        this.trustChanged();
+
+        String id = playerID.toLowerCase();
+        UUID uuid = parseTrusteeID(id);
+        if (uuid != null)
+        {
+            ClaimTrusteeIndex trusteeIndex = this.getTrusteeIndex();
+            if (trusteeIndex != null) trusteeIndex.add(uuid, this);
+        }
+
         if (permissionLevel == ClaimPermission.Manage)
-            this.managers.add(playerID.toLowerCase());
+        {
+            //other than player IDs, manager entries are kept as typed, the way they've always been saved
+            String managerID = uuid != null ? id : playerID;
+            if (!this.managers.contains(managerID)) this.addManager(managerID);
+            return;
+        }
+
+        if (uuid != null)
+            this.playerIDToClaimPermissionMap.put(uuid, permissionLevel);
         else
-            this.playerIDToClaimPermissionMap.put(playerID.toLowerCase(), permissionLevel);
+            this.namedClaimPermissionMap.put(id, permissionLevel);
+    }
+
+    private void addManager(String managerID)
+    {
+        this.managers.add(managerID);
+
+        UUID uuid = parseTrusteeID(managerID);
+        if (uuid != null) this.managerIDs.add(uuid);
+    }
+
+    //gets the player a trust entry refers to, or null for "public", [permission.node] and anything else that isn't a player
+    private static UUID parseTrusteeID(String id)
+    {
+        //a UUID's string form is always 36 characters, most other entries can be ruled out without parsing
+        if (id.length() != 36) return null;
+
+        try
+        {
+            UUID uuid = UUID.fromString(id);
+
+            //fromString() also accepts some strings which aren't a UUID's normal form, those are kept by name so they save unchanged
+            return uuid.toString().equalsIgnoreCase(id) ? uuid : null;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
     }
 
     //revokes a permission for a player or the public
     public void dropPermission(String playerID)
     {
-        playerID = playerID.toLowerCase();
-        this.playerIDToClaimPermissionMap.remove(playerID);
-        this.managers.remove(playerID);
+        this.trustChanged();
+
+        String id = playerID.toLowerCase();
+        this.namedClaimPermissionMap.remove(id);
+        this.managers.removeIf(managerID -> managerID.equalsIgnoreCase(id));
+
+        UUID uuid = parseTrusteeID(id);
+        if (uuid != null)
+        {
+            this.playerIDToClaimPermissionMap.remove(uuid);
+            this.managerIDs.remove(uuid);
+
+            ClaimTrusteeIndex trusteeIndex = this.getTrusteeIndex();
+            if (trusteeIndex != null) trusteeIndex.remove(uuid, this);
+        }
 
         for (Claim child : this.children)
         {
@@ -657,8 +925,14 @@ public class Claim
     //clears all permissions (except owner of course)
     public void clearPermissions()
     {
+        ClaimTrusteeIndex trusteeIndex = this.getTrusteeIndex();
+        if (trusteeIndex != null) trusteeIndex.remove(this);
+
         this.playerIDToClaimPermissionMap.clear();
+        this.namedClaimPermissionMap.clear();
         this.managers.clear();
+        this.managerIDs.clear();
+        this.trustChanged();
 
         for (Claim child : this.children)
         {
@@ -666,32 +940,59 @@ public class Claim
         }
     }
 
+    //gets the players explicitly trusted in this claim at any level, including managers
+    Set<UUID> getTrusteeIDs()
+    {
+        HashSet<UUID> trusteeIDs = new HashSet<>(this.playerIDToClaimPermissionMap.keySet());
+        trusteeIDs.addAll(this.managerIDs);
+        return trusteeIDs;
+    }
+
+    //the data store's trustee index, which must follow this claim's trust while it's in the data store
+    private ClaimTrusteeIndex getTrusteeIndex()
+    {
+        if (!this.inDataStore) return null;
+
+        GriefPrevention plugin = GriefPrevention.instance;
+        return plugin == null || plugin.dataStore == null ? null : plugin.dataStore.trusteeIndex;
+    }
+
     //gets ALL permissions
     //useful for  making copies of permissions during a claim resize and listing all permissions in a claim
     public void getPermissions(ArrayList<String> builders, ArrayList<String> containers, ArrayList<String> accessors, ArrayList<String> managers)
     {
-        //loop through all the entries in the hash map
-        for (Map.Entry<String, ClaimPermission> entry : this.playerIDToClaimPermissionMap.entrySet())
+        //loop through all the entries in the hash maps
+        for (Map.Entry<UUID, ClaimPermission> entry : this.playerIDToClaimPermissionMap.entrySet())
         {
-            //build up a list for each permission level
-            if (entry.getValue() == ClaimPermission.Build)
-            {
-                builders.add(entry.getKey());
-            }
-            else if (entry.getValue() == ClaimPermission.Inventory)
-            {
-                containers.add(entry.getKey());
-            }
-            else
-            {
-                accessors.add(entry.getKey());
-            }
+            addToPermissionList(entry.getKey().toString(), entry.getValue(), builders, containers, accessors);
+        }
+
+        for (Map.Entry<String, ClaimPermission> entry : this.namedClaimPermissionMap.entrySet())
+        {
+            addToPermissionList(entry.getKey(), entry.getValue(), builders, containers, accessors);
         }
 
         //managers are handled a little differently
         managers.addAll(this.managers);
     }
 
+    //build up a list for each permission level
+    private static void addToPermissionList(String id, ClaimPermission permission, ArrayList<String> builders, ArrayList<String> containers, ArrayList<String> accessors)
+    {
+        if (permission == ClaimPermission.Build)
+        {
+            builders.add(id);
+        }
+        else if (permission == ClaimPermission.Inventory)
+        {
+            containers.add(id);
+        }
+        else
+        {
+            accessors.add(id);
+        }
+    }
+
     //returns a copy of the location representing lower x, y, z limits
     public Location getLesserBoundaryCorner()
     {
@@ -731,22 +1032,24 @@ public class Claim
     //excludeSubdivisions = true means that locations inside subdivisions of the claim will return FALSE
     public boolean contains(Location location, boolean ignoreHeight, boolean excludeSubdivisions)
     {
-        //not in the same world implies false
-        if (!Objects.equals(location.getWorld(), this.lesserBoundaryCorner.getWorld())) return false;
+        return this.contains(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight, excludeSubdivisions);
+    }
 
-        BoundingBox boundingBox = new BoundingBox(this);
-        int x = location.getBlockX();
-        int z = location.getBlockZ();
+    //same as contains(Location, boolean, boolean), for callers which have block coordinates rather than a location
+    boolean contains(World locationWorld, int x, int y, int z, boolean ignoreHeight, boolean excludeSubdivisions)
+    {
+        //not in the same world implies false
+        if (locationWorld != this.world && !Objects.equals(locationWorld, this.world)) return false;
 
-        // If we're ignoring height, use 2D containment check.
-        if (ignoreHeight && !boundingBox.contains2d(x, z))
+        // Check horizontal containment first.
+        if (x < this.minX || x > this.maxX || z < this.minZ || z > this.maxZ)
         {
             return false;
         }
-        // Otherwise use full containment check.
-        else if (!ignoreHeight && !boundingBox.contains(x, location.getBlockY(), z))
+        // Unless we're ignoring height, also check vertical containment.
+        else if (!ignoreHeight)
         {
-            return false;
+            if (y < this.minY || y > this.maxY) return false;
         }
 
         //additional check for subdivisions
@@ -755,17 +1058,17 @@ public class Claim
         //a subdivision can reach outside of its parent's boundaries.  so this check is important!
         if (this.parent != null)
         {
-            return this.parent.contains(location, ignoreHeight, false);
+            return this.parent.contains(locationWorld, x, y, z, ignoreHeight, false);
         }
 
         //code to exclude subdivisions in this check
         else if (excludeSubdivisions)
         {
-            //search all subdivisions to see if the location is in any of them
-            for (Claim child : this.children)
+            //search the subdivisions near the location to see if it's in any of them
+            for (Claim child : this.getSubdivisionIndex().getCandidates(x, z))
             {
                 //if we find such a subdivision, return false
-                if (child.contains(location, ignoreHeight, true))
+                if (child.contains(locationWorld, x, y, z, ignoreHeight, true))
                 {
                     return false;
                 }
@@ -776,13 +1079,51 @@ public class Claim
         return true;
     }
 
+    //whether or not this claim intersects a bounding box
+    //same result as new BoundingBox(this).intersects(box), without allocating a box for the claim
+    boolean intersects(BoundingBox box)
+    {
+        return this.minX <= box.getMaxX() && this.maxX >= box.getMinX()
+                && this.minY <= box.getMaxY() && this.maxY >= box.getMinY()
+                && this.minZ <= box.getMaxZ() && this.maxZ >= box.getMinZ();
+    }
+
+    //copies the current children into the snapshot read by lock-free lookups and indexes them by location
+    void publishChildren()
+    {
+        this.subdivisionIndex = this.children.isEmpty() ? ClaimSubdivisionIndex.EMPTY
+                : new ClaimSubdivisionIndex(this.children.toArray(new Claim[0]));
+    }
+
+    //gets the children as last published by the data store
+    //the returned array must not be modified
+    Claim[] getChildrenSnapshot()
+    {
+        return this.getSubdivisionIndex().claims;
+    }
+
+    //gets the children and their spatial index as last published by the data store
+    ClaimSubdivisionIndex getSubdivisionIndex()
+    {
+        ClaimSubdivisionIndex index = this.subdivisionIndex;
+        if (index == null)
+        {
+            //never published, so this claim isn't in the data store yet
+            index = new ClaimSubdivisionIndex(this.children.toArray(new Claim[0]));
+        }
+
+        return index;
+    }
+
     //whether or not two claims overlap
     //used internally to prevent overlaps when creating claims
     boolean overlaps(Claim otherClaim)
     {
-        if (!Objects.equals(this.lesserBoundaryCorner.getWorld(), otherClaim.getLesserBoundaryCorner().getWorld())) return false;
+        if (this.world != otherClaim.world && !Objects.equals(this.world, otherClaim.world)) return false;
 
-        return new BoundingBox(this).intersects(new BoundingBox(otherClaim));
+        return this.minX <= otherClaim.maxX && this.maxX >= otherClaim.minX
+                && this.minY <= otherClaim.maxY && this.maxY >= otherClaim.minY
+                && this.minZ <= otherClaim.maxZ && this.maxZ >= otherClaim.minZ;
     }
 
     //whether more entities may be added to a claim
@@ -951,9 +1292,4 @@ public class Claim
 
         return chunks;
     }
-
-    ArrayList<Long> getChunkHashes()
-    {
-        return DataStore.getChunkHashes(this);
-    }
 }
@@ -0,0 +1,393 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import me.ryanhamshire.GriefPrevention.util.CopyOnWriteLongHashMap;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.UUID;
+
+//spatial lookup for top level claims
+//each world keeps its own tables, so lookups never box keys and never have to filter out claims belonging to other worlds
+//claims are split into two tiers by size:
+//  most claims are registered in every chunk they touch, so a lookup only sees claims overlapping its chunk
+//  very large claims (huge admin claims around spawn, for example) are registered in every region (32x32 chunks) they touch
+//  instead, so they cost a few thousand entries rather than millions
+//an index is never modified once it's visible to readers, changes are made to a copy (see ClaimIndex)
+//copies share the tables' storage in blocks of 32x32 cells, so a change only copies the blocks it touches
+class ClaimChunkIndex
+{
+    //regions are 2^REGION_SHIFT chunks wide
+    static final int REGION_SHIFT = 5;
+
+    //claims touching more chunks than this go into the region tier
+    static final int LARGE_CLAIM_CHUNKS = 256;
+
+    //one world's tables
+    private static class WorldIndex
+    {
+        //chunk key -> claims touching that chunk
+        CopyOnWriteLongHashMap<Claim[]> chunks;
+
+        //region key -> large claims touching that region
+        CopyOnWriteLongHashMap<Claim[]> regions;
+
+        WorldIndex(CopyOnWriteLongHashMap<Claim[]> chunks, CopyOnWriteLongHashMap<Claim[]> regions)
+        {
+            this.chunks = chunks;
+            this.regions = regions;
+        }
+
+        boolean isEmpty()
+        {
+            return this.chunks.isEmpty() && this.regions.isEmpty();
+        }
+    }
+
+    //world UUID -> that world's tables
+    private final HashMap<UUID, WorldIndex> worldIndexes;
+
+    //worlds and tables which belong to this copy and may be modified in place
+    private final HashSet<UUID> ownedWorlds = new HashSet<>();
+    private final Set<CopyOnWriteLongHashMap<Claim[]>> ownedTables = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    ClaimChunkIndex()
+    {
+        this.worldIndexes = new HashMap<>();
+    }
+
+    //starts a copy which shares every world's tables with the source until they're changed
+    ClaimChunkIndex(ClaimChunkIndex source)
+    {
+        this.worldIndexes = new HashMap<>(source.worldIndexes);
+    }
+
+    //gets a world's tables for modification
+    //the tables themselves are still shared until they're passed through editTable()
+    private WorldIndex editWorld(UUID worldID)
+    {
+        WorldIndex worldIndex = this.worldIndexes.get(worldID);
+        if (this.ownedWorlds.add(worldID))
+        {
+            if (worldIndex == null)
+            {
+                worldIndex = new WorldIndex(newTable(), newTable());
+                this.ownedTables.add(worldIndex.chunks);
+                this.ownedTables.add(worldIndex.regions);
+            }
+            else
+            {
+                worldIndex = new WorldIndex(worldIndex.chunks, worldIndex.regions);
+            }
+
+            this.worldIndexes.put(worldID, worldIndex);
+        }
+
+        return worldIndex;
+    }
+
+    //a table whose cells are stored in blocks of 32x32 neighbors, since claims change cells next to each other
+    private static CopyOnWriteLongHashMap<Claim[]> newTable()
+    {
+        return new CopyOnWriteLongHashMap<>(key -> getChunkKey((int) (key >> 32) >> REGION_SHIFT, (int) key >> REGION_SHIFT));
+    }
+
+    //gets one tier of a world for modification, copying it first if it's shared with another index
+    //the copy shares storage with the original, see CopyOnWriteLongHashMap
+    private CopyOnWriteLongHashMap<Claim[]> editTable(WorldIndex worldIndex, boolean large)
+    {
+        CopyOnWriteLongHashMap<Claim[]> table = large ? worldIndex.regions : worldIndex.chunks;
+        if (this.ownedTables.contains(table)) return table;
+
+        table = table.copy();
+        this.ownedTables.add(table);
+        if (large)
+        {
+            worldIndex.regions = table;
+        }
+        else
+        {
+            worldIndex.chunks = table;
+        }
+
+        return table;
+    }
+
+    //packs chunk (or region) coordinates into a single collision-free key
+    static long getChunkKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    //whether a claim belongs in the region tier
+    static boolean isLarge(Claim claim)
+    {
+        long width = (claim.greaterBoundaryCorner.getBlockX() >> 4) - (claim.lesserBoundaryCorner.getBlockX() >> 4) + 1;
+        long length = (claim.greaterBoundaryCorner.getBlockZ() >> 4) - (claim.lesserBoundaryCorner.getBlockZ() >> 4) + 1;
+        return width * length > LARGE_CLAIM_CHUNKS;
+    }
+
+    //whether a claim touches any chunk in a range
+    private static boolean touchesChunks(Claim claim, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ)
+    {
+        return (claim.lesserBoundaryCorner.getBlockX() >> 4) <= maxChunkX && (claim.greaterBoundaryCorner.getBlockX() >> 4) >= minChunkX
+                && (claim.lesserBoundaryCorner.getBlockZ() >> 4) <= maxChunkZ && (claim.greaterBoundaryCorner.getBlockZ() >> 4) >= minChunkZ;
+    }
+
+    //registers a top level claim in every chunk or region it covers
+    void add(Claim claim)
+    {
+        World world = claim.lesserBoundaryCorner.getWorld();
+        boolean large = isLarge(claim);
+        CopyOnWriteLongHashMap<Claim[]> table = this.editTable(this.editWorld(world.getUID()), large);
+        int shift = large ? 4 + REGION_SHIFT : 4;
+
+        int smallX = claim.lesserBoundaryCorner.getBlockX() >> shift;
+        int smallZ = claim.lesserBoundaryCorner.getBlockZ() >> shift;
+        int largeX = claim.greaterBoundaryCorner.getBlockX() >> shift;
+        int largeZ = claim.greaterBoundaryCorner.getBlockZ() >> shift;
+
+        for (int x = smallX; x <= largeX; x++)
+        {
+            for (int z = smallZ; z <= largeZ; z++)
+            {
+                long key = getChunkKey(x, z);
+                Claim[] claimsInCell = table.get(key);
+                if (claimsInCell == null)
+                {
+                    table.put(key, new Claim[] { claim });
+                    continue;
+                }
+
+                Claim[] expanded = Arrays.copyOf(claimsInCell, claimsInCell.length + 1);
+                expanded[claimsInCell.length] = claim;
+                table.put(key, expanded);
+            }
+        }
+    }
+
+    //removes a top level claim from every chunk or region covered by its current boundaries
+    void remove(Claim claim)
+    {
+        World world = claim.lesserBoundaryCorner.getWorld();
+        if (!this.worldIndexes.containsKey(world.getUID())) return;
+
+        boolean large = isLarge(claim);
+        WorldIndex worldIndex = this.editWorld(world.getUID());
+        CopyOnWriteLongHashMap<Claim[]> table = this.editTable(worldIndex, large);
+        int shift = large ? 4 + REGION_SHIFT : 4;
+
+        int smallX = claim.lesserBoundaryCorner.getBlockX() >> shift;
+        int smallZ = claim.lesserBoundaryCorner.getBlockZ() >> shift;
+        int largeX = claim.greaterBoundaryCorner.getBlockX() >> shift;
+        int largeZ = claim.greaterBoundaryCorner.getBlockZ() >> shift;
+
+        for (int x = smallX; x <= largeX; x++)
+        {
+            for (int z = smallZ; z <= largeZ; z++)
+            {
+                long key = getChunkKey(x, z);
+                Claim[] claimsInCell = table.get(key);
+                if (claimsInCell == null) continue;
+
+                int index = indexOf(claimsInCell, claim);
+                if (index < 0) continue;
+
+                // if nothing's left, remove this cell's cache
+                if (claimsInCell.length == 1)
+                {
+                    table.remove(key);
+                    continue;
+                }
+
+                Claim[] shrunk = new Claim[claimsInCell.length - 1];
+                System.arraycopy(claimsInCell, 0, shrunk, 0, index);
+                System.arraycopy(claimsInCell, index + 1, shrunk, index, shrunk.length - index);
+                table.put(key, shrunk);
+            }
+        }
+
+        if (worldIndex.isEmpty())
+        {
+            this.worldIndexes.remove(world.getUID());
+            this.ownedWorlds.remove(world.getUID());
+        }
+    }
+
+    private static int indexOf(Claim[] claims, Claim claim)
+    {
+        for (int i = 0; i < claims.length; i++)
+        {
+            Claim other = claims[i];
+            if (other == claim || other.id != null && other.id.equals(claim.id)) return i;
+        }
+
+        return -1;
+    }
+
+    //gets the claims registered in a chunk, or null if there are none
+    //large claims are not included, see getLarge()
+    //the returned array must not be modified
+    Claim[] get(World world, int chunkX, int chunkZ)
+    {
+        if (world == null) return null;
+
+        WorldIndex worldIndex = this.worldIndexes.get(world.getUID());
+        if (worldIndex == null) return null;
+
+        return worldIndex.chunks.get(getChunkKey(chunkX, chunkZ));
+    }
+
+    //gets the large claims registered in the region containing a chunk, or null if there are none
+    //these only share a region with the chunk, callers must check the actual boundaries
+    //the returned array must not be modified
+    Claim[] getLarge(World world, int chunkX, int chunkZ)
+    {
+        if (world == null) return null;
+
+        WorldIndex worldIndex = this.worldIndexes.get(world.getUID());
+        if (worldIndex == null || worldIndex.regions.isEmpty()) return null;
+
+        return worldIndex.regions.get(getChunkKey(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT));
+    }
+
+    //gets all top level claims touching a chunk from both tiers, or null if there are none
+    //allocates when large claims are involved, so hot paths should use get() and getLarge() directly
+    Claim[] getAll(World world, int chunkX, int chunkZ)
+    {
+        return merge(this.get(world, chunkX, chunkZ), this.getLarge(world, chunkX, chunkZ), chunkX, chunkZ);
+    }
+
+    //combines a chunk's claims with the large claims from its region which actually touch the chunk
+    private static Claim[] merge(Claim[] claimsInChunk, Claim[] largeClaims, int chunkX, int chunkZ)
+    {
+        if (largeClaims == null) return claimsInChunk;
+
+        Claim[] result = claimsInChunk;
+        for (Claim claim : largeClaims)
+        {
+            if (!touchesChunks(claim, chunkX, chunkZ, chunkX, chunkZ)) continue;
+
+            if (result == null)
+            {
+                result = new Claim[] { claim };
+            }
+            else
+            {
+                result = Arrays.copyOf(result, result.length + 1);
+                result[result.length - 1] = claim;
+            }
+        }
+
+        return result;
+    }
+
+    //collects the top level claims touching any chunk in a range, each claim once
+    void collect(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, Set<Claim> result)
+    {
+        if (world == null) return;
+
+        WorldIndex worldIndex = this.worldIndexes.get(world.getUID());
+        if (worldIndex == null) return;
+
+        collect(worldIndex.chunks, minChunkX, minChunkZ, maxChunkX, maxChunkZ, result, null);
+
+        //large claims only share a region with the range, so they're filtered by their chunk range
+        int[] chunkRange = { minChunkX, minChunkZ, maxChunkX, maxChunkZ };
+        collect(worldIndex.regions, minChunkX >> REGION_SHIFT, minChunkZ >> REGION_SHIFT, maxChunkX >> REGION_SHIFT, maxChunkZ >> REGION_SHIFT, result, chunkRange);
+    }
+
+    //adds the claims from every cell of a table within a range
+    //when chunkRange is set, only claims touching that range of chunks are added
+    private static void collect(CopyOnWriteLongHashMap<Claim[]> table, int minX, int minZ, int maxX, int maxZ, Set<Claim> result, int[] chunkRange)
+    {
+        if (table.isEmpty()) return;
+
+        //for very large ranges, walking the table is cheaper than probing every cell in the range
+        long rangeSize = ((long) maxX - minX + 1) * ((long) maxZ - minZ + 1);
+        if (rangeSize > table.size())
+        {
+            table.forEach((claimsInCell, key) ->
+            {
+                int x = (int) (key >> 32);
+                int z = (int) key;
+                if (x >= minX && x <= maxX && z >= minZ && z <= maxZ)
+                {
+                    addClaims(claimsInCell, result, chunkRange);
+                }
+            });
+            return;
+        }
+
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                Claim[] claimsInCell = table.get(getChunkKey(x, z));
+                if (claimsInCell != null)
+                {
+                    addClaims(claimsInCell, result, chunkRange);
+                }
+            }
+        }
+    }
+
+    private static void addClaims(Claim[] claims, Set<Claim> result, int[] chunkRange)
+    {
+        for (Claim claim : claims)
+        {
+            if (chunkRange == null || touchesChunks(claim, chunkRange[0], chunkRange[1], chunkRange[2], chunkRange[3]))
+            {
+                result.add(claim);
+            }
+        }
+    }
+
+    //gets the top level claims touching a chunk in any world, or null if there are none
+    Claim[] getInAllWorlds(int chunkX, int chunkZ)
+    {
+        long key = getChunkKey(chunkX, chunkZ);
+        long regionKey = getChunkKey(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+        Claim[] result = null;
+        for (WorldIndex worldIndex : this.worldIndexes.values())
+        {
+            Claim[] claimsInChunk = merge(worldIndex.chunks.get(key), worldIndex.regions.get(regionKey), chunkX, chunkZ);
+            if (claimsInChunk == null) continue;
+
+            if (result == null)
+            {
+                result = claimsInChunk;
+            }
+            else
+            {
+                Claim[] merged = Arrays.copyOf(result, result.length + claimsInChunk.length);
+                System.arraycopy(claimsInChunk, 0, merged, result.length, claimsInChunk.length);
+                result = merged;
+            }
+        }
+
+        return result;
+    }
+}
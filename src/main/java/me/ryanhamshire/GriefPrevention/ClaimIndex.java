@@ -0,0 +1,246 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import me.ryanhamshire.GriefPrevention.util.CopyOnWriteLongHashMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+//immutable snapshot ("epoch") of the claims in the data store
+//the data store publishes a new snapshot after every change, so lookups can read the current one from any thread without locking
+//changes are collected in a Builder, which copies only the parts of the previous snapshot it actually touches
+final class ClaimIndex
+{
+    //IDs are handed out in order, so claims created together land in the same block of the ID table
+    static final ClaimIndex EMPTY = new ClaimIndex(0, new CopyOnWriteLongHashMap<>(id -> id >> 8), new ClaimChunkIndex());
+
+    //increases by one every time a snapshot is published
+    final long epoch;
+
+    //top level claims and subdivisions by ID
+    private final CopyOnWriteLongHashMap<Claim> claimsByID;
+
+    //top level claims by chunk
+    private final ClaimChunkIndex chunks;
+
+    private ClaimIndex(long epoch, CopyOnWriteLongHashMap<Claim> claimsByID, ClaimChunkIndex chunks)
+    {
+        this.epoch = epoch;
+        this.claimsByID = claimsByID;
+        this.chunks = chunks;
+    }
+
+    //finds a claim or subdivision by ID
+    Claim getClaim(long id)
+    {
+        Claim claim = this.claimsByID.get(id);
+        if (claim == null || !claim.inDataStore) return null;
+
+        return claim;
+    }
+
+    //gets the top level claims overlapping a chunk, or null if there are none
+    //the returned array must not be modified
+    Claim[] getClaimsInChunk(World world, int chunkX, int chunkZ)
+    {
+        return this.chunks.getAll(world, chunkX, chunkZ);
+    }
+
+    //finds the top level claim containing a location, checking both tiers of the chunk index without allocating
+    Claim getTopLevelClaimAt(Location location, boolean ignoreHeight)
+    {
+        return this.getTopLevelClaimAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight);
+    }
+
+    //same as getTopLevelClaimAt(Location, boolean), for block coordinates
+    Claim getTopLevelClaimAt(World world, int x, int y, int z, boolean ignoreHeight)
+    {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+
+        Claim claim = findClaimAt(this.chunks.get(world, chunkX, chunkZ), world, x, y, z, ignoreHeight);
+        if (claim != null) return claim;
+
+        return findClaimAt(this.chunks.getLarge(world, chunkX, chunkZ), world, x, y, z, ignoreHeight);
+    }
+
+    //finds the top level claims containing many block positions in one world, see DataStore.packBlockPosition()
+    //a run of positions in the same chunk looks that chunk up once, so callers should keep nearby blocks together
+    void getTopLevelClaimsAt(World world, long[] positions, boolean ignoreHeight, Claim[] result)
+    {
+        long lastChunkKey = 0;
+        Claim[] claimsInChunk = null;
+        Claim[] largeClaims = null;
+
+        for (int i = 0; i < positions.length; i++)
+        {
+            long position = positions[i];
+            int x = DataStore.unpackBlockX(position);
+            int y = DataStore.unpackBlockY(position);
+            int z = DataStore.unpackBlockZ(position);
+
+            long chunkKey = ClaimChunkIndex.getChunkKey(x >> 4, z >> 4);
+            if (i == 0 || chunkKey != lastChunkKey)
+            {
+                claimsInChunk = this.chunks.get(world, x >> 4, z >> 4);
+                largeClaims = this.chunks.getLarge(world, x >> 4, z >> 4);
+                lastChunkKey = chunkKey;
+            }
+
+            Claim claim = findClaimAt(claimsInChunk, world, x, y, z, ignoreHeight);
+            if (claim == null) claim = findClaimAt(largeClaims, world, x, y, z, ignoreHeight);
+            result[i] = claim;
+        }
+    }
+
+    private static Claim findClaimAt(Claim[] claims, World world, int x, int y, int z, boolean ignoreHeight)
+    {
+        if (claims == null) return null;
+
+        for (Claim claim : claims)
+        {
+            if (claim.inDataStore && claim.contains(world, x, y, z, ignoreHeight, false)) return claim;
+        }
+
+        return null;
+    }
+
+    //collects the top level claims overlapping any chunk in a range, each claim once
+    //claims are only known to share chunks with the range, callers must check the actual boundaries
+    void collectClaimsInChunks(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, Set<Claim> result)
+    {
+        this.chunks.collect(world, minChunkX, minChunkZ, maxChunkX, maxChunkZ, result);
+    }
+
+    //gets the top level claims overlapping a chunk in any world, or null if there are none
+    //the returned array must not be modified
+    Claim[] getClaimsInChunkInAllWorlds(int chunkX, int chunkZ)
+    {
+        return this.chunks.getInAllWorlds(chunkX, chunkZ);
+    }
+
+    //starts a set of changes based on this snapshot
+    Builder edit()
+    {
+        return new Builder(this);
+    }
+
+    //collects changes for the next snapshot
+    //not thread safe, the data store only uses builders while holding its own lock
+    static final class Builder
+    {
+        private long epoch;
+        private CopyOnWriteLongHashMap<Claim> claimsByID;
+        private ClaimChunkIndex chunks;
+
+        //top level claims whose subdivision lists changed and must be republished
+        private final Set<Claim> changedParents = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Builder(ClaimIndex source)
+        {
+            this.epoch = source.epoch;
+            this.claimsByID = source.claimsByID.copy();
+            this.chunks = new ClaimChunkIndex(source.chunks);
+        }
+
+        //adds a claim or subdivision
+        void add(Claim claim)
+        {
+            this.assignedID(claim);
+
+            if (claim.parent != null)
+            {
+                this.changedParents.add(claim.parent);
+                return;
+            }
+
+            this.chunks.add(claim);
+            this.changedParents.add(claim);
+        }
+
+        //records the ID of a claim which didn't have one when it was added
+        void assignedID(Claim claim)
+        {
+            if (claim.id == null || claim.id == -1) return;
+
+            this.claimsByID.put(claim.id, claim);
+        }
+
+        //removes a claim or subdivision
+        //must be called before the claim's boundaries change
+        void remove(Claim claim)
+        {
+            if (claim.id != null)
+            {
+                this.claimsByID.remove(claim.id);
+            }
+
+            if (claim.parent != null)
+            {
+                this.changedParents.add(claim.parent);
+                return;
+            }
+
+            this.chunks.remove(claim);
+        }
+
+        //records a change of a claim's boundaries
+        //call before changing them, then call endMove() once they're updated
+        void beginMove(Claim claim)
+        {
+            if (claim.parent != null) return;
+
+            this.chunks.remove(claim);
+        }
+
+        //finishes a boundary change started with beginMove()
+        void endMove(Claim claim)
+        {
+            //a moved subdivision only needs its parent's subdivision index rebuilt
+            if (claim.parent != null)
+            {
+                this.changedParents.add(claim.parent);
+                return;
+            }
+
+            this.chunks.add(claim);
+        }
+
+        //freezes the collected changes into a new snapshot
+        //the builder may keep being used afterward, its later changes won't affect the returned snapshot
+        ClaimIndex build()
+        {
+            //publish read-only subdivision lists for lock-free lookups
+            for (Claim parent : this.changedParents)
+            {
+                parent.publishChildren();
+            }
+            this.changedParents.clear();
+
+            ClaimIndex snapshot = new ClaimIndex(++this.epoch, this.claimsByID, this.chunks);
+            this.claimsByID = this.claimsByID.copy();
+            this.chunks = new ClaimChunkIndex(this.chunks);
+            return snapshot;
+        }
+    }
+}
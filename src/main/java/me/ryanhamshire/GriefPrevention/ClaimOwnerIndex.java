@@ -0,0 +1,189 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+//top level claims grouped by owner, so finding a player's claims doesn't require a pass over every claim
+//admin claims (no owner) are kept in their own list
+//only the data store changes this, while holding its lock.  each owner's claims are replaced rather than modified,
+//so reads are safe from any thread
+//while claims are loaded in bulk, additions are collected and each owner's claims are replaced once (see beginBatch())
+class ClaimOwnerIndex
+{
+    private static final Claim[] NO_CLAIMS = new Claim[0];
+
+    private final ConcurrentHashMap<UUID, Claim[]> claimsByOwner = new ConcurrentHashMap<>();
+    private volatile Claim[] adminClaims = NO_CLAIMS;
+
+    //claims added since the batch began, by owner (null for admin claims), or null when not batching
+    //guarded by this index's lock, the flag lets reads skip the lock when there's no batch
+    private HashMap<UUID, List<Claim>> batch = null;
+    private volatile boolean batching = false;
+
+    //files a top level claim under its current owner
+    synchronized void add(Claim claim)
+    {
+        if (this.batch != null)
+        {
+            this.batch.computeIfAbsent(claim.ownerID, ownerID -> new ArrayList<>()).add(claim);
+            return;
+        }
+
+        this.append(claim.ownerID, Collections.singletonList(claim));
+    }
+
+    //removes a top level claim from the given owner's claims
+    //the owner is passed separately because it may already have been changed on the claim
+    synchronized void remove(Claim claim, UUID ownerID)
+    {
+        this.flushBatch(ownerID);
+
+        Claim[] claims = this.getPublished(ownerID);
+        for (int i = 0; i < claims.length; i++)
+        {
+            Claim other = claims[i];
+            if (other != claim && !(other.id != null && other.id.equals(claim.id))) continue;
+
+            Claim[] shrunk = new Claim[claims.length - 1];
+            System.arraycopy(claims, 0, shrunk, 0, i);
+            System.arraycopy(claims, i + 1, shrunk, i, shrunk.length - i);
+            this.set(ownerID, shrunk);
+            return;
+        }
+    }
+
+    //gets the top level claims owned by a player, or the admin claims for a null owner
+    //the returned array must not be modified
+    Claim[] get(UUID ownerID)
+    {
+        if (this.batching)
+        {
+            synchronized (this)
+            {
+                this.flushBatch(ownerID);
+            }
+        }
+
+        return this.getPublished(ownerID);
+    }
+
+    //gets the IDs of all players owning at least one claim
+    //claims still waiting in a batch aren't included
+    Set<UUID> getOwners()
+    {
+        return Collections.unmodifiableSet(this.claimsByOwner.keySet());
+    }
+
+    //collects additions until endBatch(), so loading many claims for one owner copies their claims once instead of once per claim
+    synchronized void beginBatch()
+    {
+        if (this.batch == null)
+        {
+            this.batch = new HashMap<>();
+            this.batching = true;
+        }
+    }
+
+    //files every claim added during the batch without ending it
+    synchronized void flushBatch()
+    {
+        if (this.batch == null) return;
+
+        for (Map.Entry<UUID, List<Claim>> entry : this.batch.entrySet())
+        {
+            this.append(entry.getKey(), entry.getValue());
+        }
+        this.batch.clear();
+    }
+
+    //files every claim added during the batch and goes back to filing each claim as it's added
+    synchronized void endBatch()
+    {
+        this.flushBatch();
+        this.batch = null;
+        this.batching = false;
+    }
+
+    //files one owner's batched claims, so they can be read or removed
+    private void flushBatch(UUID ownerID)
+    {
+        if (this.batch == null) return;
+
+        List<Claim> added = this.batch.remove(ownerID);
+        if (added != null) this.append(ownerID, added);
+    }
+
+    //replaces an owner's claims with a copy including the added ones, skipping any already there
+    private void append(UUID ownerID, List<Claim> added)
+    {
+        Claim[] claims = this.getPublished(ownerID);
+        Set<Claim> present = Collections.newSetFromMap(new IdentityHashMap<>(claims.length + added.size()));
+        Collections.addAll(present, claims);
+
+        Claim[] expanded = new Claim[claims.length + added.size()];
+        System.arraycopy(claims, 0, expanded, 0, claims.length);
+        int count = claims.length;
+        for (Claim claim : added)
+        {
+            if (present.add(claim)) expanded[count++] = claim;
+        }
+
+        if (count == claims.length) return;
+        if (count < expanded.length)
+        {
+            Claim[] trimmed = new Claim[count];
+            System.arraycopy(expanded, 0, trimmed, 0, count);
+            expanded = trimmed;
+        }
+        this.set(ownerID, expanded);
+    }
+
+    private Claim[] getPublished(UUID ownerID)
+    {
+        if (ownerID == null) return this.adminClaims;
+
+        Claim[] claims = this.claimsByOwner.get(ownerID);
+        return claims == null ? NO_CLAIMS : claims;
+    }
+
+    private void set(UUID ownerID, Claim[] claims)
+    {
+        if (ownerID == null)
+        {
+            this.adminClaims = claims;
+        }
+        else if (claims.length == 0)
+        {
+            this.claimsByOwner.remove(ownerID);
+        }
+        else
+        {
+            this.claimsByOwner.put(ownerID, claims);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+//claim saves and deletes not yet written to secondary storage, so several saves of the same claim become one write
+//each save is a copy taken when the claim was saved, so changes made while it waits don't leak into the write half done
+//a claim has at most one waiting write, and writes come out in the order they were queued, so a delete can't be
+//overtaken by an older save of the same claim
+//also keeps counts describing how well saves are being combined and how long writing them takes
+//thread safe, the claim saver drains it without the data store's lock
+class ClaimSaveQueue
+{
+    //original claim -> write waiting for it, in the order claims were first queued
+    private final LinkedHashMap<Claim, Write> pending = new LinkedHashMap<>();
+
+    private long saves = 0;
+    private long coalescedSaves = 0;
+    private long deletes = 0;
+    private long flushes = 0;
+    private long writtenClaims = 0;
+    private long totalFlushNanos = 0;
+    private long maxFlushNanos = 0;
+    private int maxDepth = 0;
+
+    //queues a copy of the claim, replacing any older copy still waiting
+    synchronized void add(Claim claim)
+    {
+        this.saves++;
+        Write previous = this.pending.get(claim);
+        if (previous != null && !previous.delete)
+        {
+            this.coalescedSaves++;
+            previous.claim = new Claim(claim);
+            return;
+        }
+
+        //a save after a delete must be written after it
+        this.pending.remove(claim);
+        this.pending.put(claim, new Write(new Claim(claim), false));
+        this.maxDepth = Math.max(this.maxDepth, this.pending.size());
+    }
+
+    //queues deleting the claim, which replaces any waiting save since the claim is going away anyway
+    synchronized void delete(Claim claim)
+    {
+        this.deletes++;
+        this.pending.remove(claim);
+        this.pending.put(claim, new Write(claim, true));
+        this.maxDepth = Math.max(this.maxDepth, this.pending.size());
+    }
+
+    synchronized int size()
+    {
+        return this.pending.size();
+    }
+
+    //takes every waiting write in order, emptying the queue
+    synchronized List<Write> drain()
+    {
+        List<Write> writes = new ArrayList<>(this.pending.values());
+        this.pending.clear();
+        return writes;
+    }
+
+    synchronized void recordFlush(int writeCount, long nanos)
+    {
+        this.flushes++;
+        this.writtenClaims += writeCount;
+        this.totalFlushNanos += nanos;
+        this.maxFlushNanos = Math.max(this.maxFlushNanos, nanos);
+    }
+
+    //one line summary for the log
+    synchronized String getStats()
+    {
+        long averageMicros = this.flushes == 0 ? 0 : this.totalFlushNanos / this.flushes / 1000;
+        return this.saves + " claim saves, " + this.coalescedSaves + " combined with a waiting save, " + this.deletes + " deletes, " +
+                this.writtenClaims + " claims written in " + this.flushes + " flushes (average " + averageMicros + "us, longest " + this.maxFlushNanos / 1000 + "us), " +
+                this.pending.size() + " waiting (most ever " + this.maxDepth + ")";
+    }
+
+    //a waiting save of a copy of a claim, or delete of the claim itself
+    static class Write
+    {
+        private Claim claim;
+        final boolean delete;
+
+        private Write(Claim claim, boolean delete)
+        {
+            this.claim = claim;
+            this.delete = delete;
+        }
+
+        Claim getClaim()
+        {
+            return this.claim;
+        }
+    }
+}
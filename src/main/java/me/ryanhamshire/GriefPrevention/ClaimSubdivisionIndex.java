@@ -0,0 +1,144 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import java.util.function.IntConsumer;
+
+//read-only spatial lookup for one top level claim's subdivisions
+//claims with many subdivisions (towns full of rental plots, for example) get a grid over the area their subdivisions cover,
+//so finding the subdivision at a location only checks the few subdivisions sharing its cell
+//claims with few subdivisions skip the grid, checking each one is just as fast
+//never modified once built, the parent claim replaces it whenever its subdivisions change (see Claim.publishChildren())
+final class ClaimSubdivisionIndex
+{
+    //claims with fewer subdivisions than this don't get a grid
+    static final int GRID_THRESHOLD = 16;
+
+    //cells start 8 blocks wide and double until the grid fits within this many cells per subdivision
+    private static final int MIN_CELL_SHIFT = 3;
+    private static final int CELLS_PER_SUBDIVISION = 4;
+
+    private static final Claim[] NO_CLAIMS = new Claim[0];
+
+    static final ClaimSubdivisionIndex EMPTY = new ClaimSubdivisionIndex(NO_CLAIMS);
+
+    //every subdivision, in the parent's order
+    final Claim[] claims;
+
+    //cell (x, z) covers blocks from (originX + x << cellShift, originZ + z << cellShift)
+    //cells hold the subdivisions touching them in the parent's order, null for none
+    private final Claim[][] cells;
+    private final int cellShift;
+    private final int originX;
+    private final int originZ;
+    private final int cellsX;
+    private final int cellsZ;
+
+    ClaimSubdivisionIndex(Claim[] claims)
+    {
+        this.claims = claims;
+        if (claims.length < GRID_THRESHOLD)
+        {
+            this.cells = null;
+            this.cellShift = this.originX = this.originZ = this.cellsX = this.cellsZ = 0;
+            return;
+        }
+
+        //find the area covered by all subdivisions
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (Claim claim : claims)
+        {
+            minX = Math.min(minX, claim.lesserBoundaryCorner.getBlockX());
+            minZ = Math.min(minZ, claim.lesserBoundaryCorner.getBlockZ());
+            maxX = Math.max(maxX, claim.greaterBoundaryCorner.getBlockX());
+            maxZ = Math.max(maxZ, claim.greaterBoundaryCorner.getBlockZ());
+        }
+
+        //pick the smallest cells which keep the grid in proportion to the number of subdivisions
+        long maxCells = (long) claims.length * CELLS_PER_SUBDIVISION;
+        int shift = MIN_CELL_SHIFT;
+        while (shift < 30 && cellCount(minX, maxX, shift) * cellCount(minZ, maxZ, shift) > maxCells)
+        {
+            shift++;
+        }
+
+        this.cellShift = shift;
+        this.originX = minX;
+        this.originZ = minZ;
+        this.cellsX = (int) cellCount(minX, maxX, shift);
+        this.cellsZ = (int) cellCount(minZ, maxZ, shift);
+
+        //count each cell's subdivisions first, so every cell is allocated at its final size
+        int[] counts = new int[this.cellsX * this.cellsZ];
+        for (Claim claim : claims)
+        {
+            this.forEachCell(claim, cell -> counts[cell]++);
+        }
+
+        this.cells = new Claim[counts.length][];
+        for (int cell = 0; cell < counts.length; cell++)
+        {
+            if (counts[cell] > 0) this.cells[cell] = new Claim[counts[cell]];
+            counts[cell] = 0;
+        }
+
+        for (Claim claim : claims)
+        {
+            this.forEachCell(claim, cell -> this.cells[cell][counts[cell]++] = claim);
+        }
+    }
+
+    private static long cellCount(int min, int max, int shift)
+    {
+        return (((long) max - min) >> shift) + 1;
+    }
+
+    private void forEachCell(Claim claim, IntConsumer action)
+    {
+        int smallX = (claim.lesserBoundaryCorner.getBlockX() - this.originX) >> this.cellShift;
+        int smallZ = (claim.lesserBoundaryCorner.getBlockZ() - this.originZ) >> this.cellShift;
+        int largeX = (claim.greaterBoundaryCorner.getBlockX() - this.originX) >> this.cellShift;
+        int largeZ = (claim.greaterBoundaryCorner.getBlockZ() - this.originZ) >> this.cellShift;
+
+        for (int x = smallX; x <= largeX; x++)
+        {
+            for (int z = smallZ; z <= largeZ; z++)
+            {
+                action.accept(x * this.cellsZ + z);
+            }
+        }
+    }
+
+    //gets the subdivisions which might contain a block column, in the parent's order
+    //callers must still check each candidate's actual boundaries
+    //the returned array must not be modified
+    Claim[] getCandidates(int x, int z)
+    {
+        if (this.cells == null) return this.claims;
+
+        //subtract as longs, so locations far from the grid can't wrap around into it
+        long cellX = ((long) x - this.originX) >> this.cellShift;
+        long cellZ = ((long) z - this.originZ) >> this.cellShift;
+        if (cellX < 0 || cellX >= this.cellsX || cellZ < 0 || cellZ >= this.cellsZ) return NO_CLAIMS;
+
+        Claim[] claimsInCell = this.cells[(int) cellX * this.cellsZ + (int) cellZ];
+        return claimsInCell == null ? NO_CLAIMS : claimsInCell;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+//claims and subdivisions grouped by the players explicitly trusted in them (any level, including managers),
+//so finding everywhere a player is trusted doesn't require a pass over every claim's permissions
+//"public" and [permission.node] entries aren't players, so they aren't indexed
+//claims keep this up to date as their trust changes while they're in the data store, see Claim.setPermission()
+//reads are safe from any thread
+class ClaimTrusteeIndex
+{
+    private final ConcurrentHashMap<UUID, Set<Claim>> claimsByTrustee = new ConcurrentHashMap<>();
+
+    //files a claim under every player trusted in it
+    void add(Claim claim)
+    {
+        for (UUID trusteeID : claim.getTrusteeIDs())
+        {
+            this.add(trusteeID, claim);
+        }
+    }
+
+    //files a claim under one player trusted in it
+    void add(UUID trusteeID, Claim claim)
+    {
+        this.claimsByTrustee.computeIfAbsent(trusteeID, id -> ConcurrentHashMap.newKeySet()).add(claim);
+    }
+
+    //removes a claim from every player trusted in it
+    void remove(Claim claim)
+    {
+        for (UUID trusteeID : claim.getTrusteeIDs())
+        {
+            this.remove(trusteeID, claim);
+        }
+    }
+
+    //removes a claim from one player's claims
+    void remove(UUID trusteeID, Claim claim)
+    {
+        this.claimsByTrustee.computeIfPresent(trusteeID, (id, claims) ->
+        {
+            claims.remove(claim);
+            return claims.isEmpty() ? null : claims;
+        });
+    }
+
+    //gets a snapshot of the claims and subdivisions a player is trusted in
+    List<Claim> get(UUID trusteeID)
+    {
+        Set<Claim> claims = this.claimsByTrustee.get(trusteeID);
+        return claims == null ? Collections.emptyList() : new ArrayList<>(claims);
+    }
+}
@@ -21,6 +21,7 @@ package me.ryanhamshire.GriefPrevention;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 
+import java.util.List;
 import java.util.UUID;
 
 //asynchronously loads player data without caching it in the datastore, then
@@ -65,24 +66,14 @@ class CleanupUnusedClaimPreTask implements Runnable
             return;
         }
 
-        Claim claimToExpire = null;
-
-        for (Claim claim : GriefPrevention.instance.dataStore.getClaims())
-        {
-            if (ownerID.equals(claim.ownerID))
-            {
-                claimToExpire = claim;
-                break;
-            }
-        }
-
-        if (claimToExpire == null)
+        List<Claim> ownedClaims = GriefPrevention.instance.dataStore.getClaimsByOwner(ownerID);
+        if (ownedClaims.isEmpty())
         {
             GriefPrevention.AddLogEntry("Unable to find a claim to expire for " + ownerID.toString(), CustomLogEntryTypes.Debug, false);
             return;
         }
 
         //pass it back to the main server thread, where it's safe to delete a claim if needed
-        Bukkit.getScheduler().scheduleSyncDelayedTask(GriefPrevention.instance, new CleanupUnusedClaimTask(claimToExpire, ownerData, ownerInfo), 1L);
+        Bukkit.getScheduler().scheduleSyncDelayedTask(GriefPrevention.instance, new CleanupUnusedClaimTask(ownedClaims.get(0), ownerData, ownerInfo), 1L);
     }
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import me.ryanhamshire.GriefPrevention.events.ClaimCreatedEvent;
 import me.ryanhamshire.GriefPrevention.events.ClaimDeletedEvent;
 import me.ryanhamshire.GriefPrevention.events.ClaimExtendEvent;
 import me.ryanhamshire.GriefPrevention.events.ClaimTransferEvent;
+import me.ryanhamshire.GriefPrevention.util.BoundingBox;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Chunk;
@@ -31,6 +32,7 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.AnimalTamer;
@@ -48,18 +50,22 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -73,9 +79,42 @@ public abstract class DataStore
     //in-memory cache for group (permission-based) data
     protected ConcurrentHashMap<String, Integer> permissionToBonusBlocksMap = new ConcurrentHashMap<>();
 
+    //changes whenever group bonus blocks change, so players' remembered group bonus totals are recalculated
+    private volatile int groupBonusVersion = 0;
+
     //in-memory cache for claim data
     ArrayList<Claim> claims = new ArrayList<>();
-    ConcurrentHashMap<Long, ArrayList<Claim>> chunksToClaimsMap = new ConcurrentHashMap<>();
+
+    //published snapshot of the claim lookup structures
+    //replaced as a whole whenever claims change, so lookups never need to lock the data store
+    volatile ClaimIndex claimIndex = ClaimIndex.EMPTY;
+
+    //index changes not yet published, only set while claims are being loaded in bulk
+    private ClaimIndex.Builder claimIndexBatch = null;
+
+    //top level claims by owner
+    final ClaimOwnerIndex ownerIndex = new ClaimOwnerIndex();
+
+    //claims and subdivisions by the players trusted in them
+    final ClaimTrusteeIndex trusteeIndex = new ClaimTrusteeIndex();
+
+    //claim saves and deletes not yet written to secondary storage, see saveClaims()
+    private final ClaimSaveQueue claimSaveQueue = new ClaimSaveQueue();
+
+    //held while writing claims to secondary storage, so writes happen one batch at a time in the order they were queued
+    //never wait for the data store's lock while holding this, the main thread may hold that while flushing
+    final Object claimWriteLock = new Object();
+
+    //writes queued claim saves shortly after they're made, so the main thread doesn't wait for storage
+    private final ScheduledThreadPoolExecutor claimSaveExecutor = new ScheduledThreadPoolExecutor(1, runnable ->
+    {
+        Thread thread = new Thread(runnable, "GriefPrevention claim saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //whether the claim saver has a flush of the queue scheduled
+    private final AtomicBoolean claimSaveFlushScheduled = new AtomicBoolean(false);
 
     //in-memory cache for messages
     private String[] messages;
@@ -86,6 +125,10 @@ public abstract class DataStore
     //next claim ID
     Long nextClaimID = (long) 0;
 
+    //claim IDs are reserved in blocks, and secondary storage only keeps the end of the reserved block, see allocateClaimID()
+    private final static int CLAIM_ID_BLOCK_SIZE = 1000;
+    long claimIDLimit = 0;
+
     //path information, for where stuff stored on disk is well...  stored
     protected final static String dataLayerFolderPath = "plugins" + File.separator + "GriefPreventionData";
     final static String playerDataFolderPath = dataLayerFolderPath + File.separator + "PlayerData";
@@ -348,12 +391,26 @@ public abstract class DataStore
     //gets the number of bonus blocks a player has from his permissions
     //Bukkit doesn't allow for checking permissions of an offline player.
     //this will return 0 when he's offline, and the correct number when online.
-    synchronized public int getGroupBonusBlocks(UUID playerID)
+    //the total is remembered for a while, so this doesn't check every group's permission each time
+    public int getGroupBonusBlocks(UUID playerID)
     {
         Player player = GriefPrevention.instance.getServer().getPlayer(playerID);
 
         if (player == null) return 0;
 
+        PlayerData playerData = this.getPlayerData(playerID);
+        int version = this.groupBonusVersion;
+        long now = System.currentTimeMillis();
+        Integer cachedBonusBlocks = playerData.getCachedGroupBonusBlocks(version, now);
+        if (cachedBonusBlocks != null) return cachedBonusBlocks;
+
+        int bonusBlocks = this.calculateGroupBonusBlocks(player);
+        playerData.setCachedGroupBonusBlocks(bonusBlocks, version, now + GriefPrevention.instance.config_claims_permissionCacheMillis);
+        return bonusBlocks;
+    }
+
+    private int calculateGroupBonusBlocks(Player player)
+    {
         int bonusBlocks = 0;
 
         for (Map.Entry<String, Integer> groupEntry : this.permissionToBonusBlocksMap.entrySet())
@@ -375,6 +432,7 @@ public abstract class DataStore
 
         currentValue += amount;
         this.permissionToBonusBlocksMap.put(groupName, currentValue);
+        this.invalidateGroupBonusBlocks();
 
         //write changes to storage to ensure they don't get lost
         this.saveGroupBonusBlocks(groupName, currentValue);
@@ -384,6 +442,12 @@ public abstract class DataStore
 
     abstract void saveGroupBonusBlocks(String groupName, int amount);
 
+    //makes every player's group bonus blocks be recalculated, for when groups or permissions may have changed
+    void invalidateGroupBonusBlocks()
+    {
+        this.groupBonusVersion++;
+    }
+
     public class NoTransferException extends RuntimeException
     {
         private static final long serialVersionUID = 1L;
@@ -427,18 +491,23 @@ public abstract class DataStore
         }
 
         //transfer
+        UUID oldOwnerID = claim.ownerID;
         claim.ownerID = event.getNewOwner();
+        claim.trustChanged();
+        this.ownerIndex.remove(claim, oldOwnerID);
+        this.ownerIndex.add(claim);
         this.saveClaim(claim);
 
         //adjust blocks and other records
         if (ownerData != null)
         {
-            ownerData.getClaims().remove(claim);
+            ownerData.removeClaim(claim);
         }
 
+        //if the new owner's claims weren't loaded yet, they were just read from the owner index and already include this one
         if (newOwnerData != null)
         {
-            newOwnerData.getClaims().add(claim);
+            newOwnerData.addClaim(claim);
         }
     }
 
@@ -453,6 +522,10 @@ public abstract class DataStore
                 newClaim.parent.children.add(newClaim);
             }
             newClaim.inDataStore = true;
+            this.trusteeIndex.add(newClaim);
+            ClaimIndex.Builder changes = this.editClaimIndex();
+            changes.add(newClaim);
+            this.publishClaimIndex(changes);
             if (writeToStorage)
             {
                 this.saveClaim(newClaim);
@@ -462,15 +535,20 @@ public abstract class DataStore
 
         //add it and mark it as added
         this.claims.add(newClaim);
-        addToChunkClaimMap(newClaim);
-
+        this.ownerIndex.add(newClaim);
+        this.trusteeIndex.add(newClaim);
         newClaim.inDataStore = true;
 
+        ClaimIndex.Builder changes = this.editClaimIndex();
+        changes.add(newClaim);
+        this.publishClaimIndex(changes);
+
         //except for administrative claims (which have no owner), update the owner's playerData with the new claim
         if (!newClaim.isAdminClaim() && writeToStorage)
         {
             PlayerData ownerData = this.getPlayerData(newClaim.ownerID);
-            ownerData.getClaims().add(newClaim);
+            //if the owner's claims weren't loaded yet, they were just read from the owner index and already include this one
+            ownerData.addClaim(newClaim);
         }
 
         //make sure the claim is saved to disk
@@ -480,47 +558,52 @@ public abstract class DataStore
         }
     }
 
-    private void addToChunkClaimMap(Claim claim)
+    //starts a change to the claim index
+    //while claims are being loaded in bulk, this continues the pending batch instead
+    private ClaimIndex.Builder editClaimIndex()
     {
-        // Subclaims should not be added to chunk claim map.
-        if (claim.parent != null) return;
+        if (this.claimIndexBatch != null) return this.claimIndexBatch;
 
-        ArrayList<Long> chunkHashes = claim.getChunkHashes();
-        for (Long chunkHash : chunkHashes)
-        {
-            ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
-            if (claimsInChunk == null)
-            {
-                this.chunksToClaimsMap.put(chunkHash, claimsInChunk = new ArrayList<>());
-            }
+        return this.claimIndex.edit();
+    }
+
+    //makes a change to the claim index visible to lookups
+    //changes belonging to a bulk load batch are published with the batch
+    private void publishClaimIndex(ClaimIndex.Builder changes)
+    {
+        if (changes == this.claimIndexBatch) return;
 
-            claimsInChunk.add(claim);
+        this.claimIndex = changes.build();
+    }
+
+    //defers claim index updates until the batch ends, so loading N claims doesn't publish N snapshots
+    //the owner index collects its additions the same way
+    synchronized void beginClaimIndexBatch()
+    {
+        if (this.claimIndexBatch == null)
+        {
+            this.claimIndexBatch = this.claimIndex.edit();
         }
+        this.ownerIndex.beginBatch();
     }
 
-    private void removeFromChunkClaimMap(Claim claim)
+    //publishes the claims loaded so far without ending the batch
+    //loaders call this before looking up claims they've just loaded, since lookups only see published changes
+    synchronized void flushClaimIndexBatch()
     {
-        ArrayList<Long> chunkHashes = claim.getChunkHashes();
-        for (Long chunkHash : chunkHashes)
+        if (this.claimIndexBatch != null)
         {
-            ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
-            if (claimsInChunk != null)
-            {
-                for (Iterator<Claim> it = claimsInChunk.iterator(); it.hasNext(); )
-                {
-                    Claim c = it.next();
-                    if (c.id.equals(claim.id))
-                    {
-                        it.remove();
-                        break;
-                    }
-                }
-                if (claimsInChunk.isEmpty())
-                { // if nothing's left, remove this chunk's cache
-                    this.chunksToClaimsMap.remove(chunkHash);
-                }
-            }
+            this.claimIndex = this.claimIndexBatch.build();
         }
+        this.ownerIndex.flushBatch();
+    }
+
+    //publishes any batched changes and goes back to publishing every change immediately
+    synchronized void endClaimIndexBatch()
+    {
+        this.flushClaimIndexBatch();
+        this.claimIndexBatch = null;
+        this.ownerIndex.endBatch();
     }
 
     //turns a location into a string, useful in data storage
@@ -583,44 +666,168 @@ public abstract class DataStore
     //saves any changes to a claim to secondary storage
     synchronized public void saveClaim(Claim claim)
     {
-        assignClaimID(claim);
+        this.saveClaims(Collections.singletonList(claim));
+    }
+
+    //saves several changed claims, which storage may be able to do more cheaply than one at a time
+    //unless disabled in the config, the claims are written a moment later on another thread, and saving a claim again
+    //before then replaces the waiting save rather than adding another write
+    synchronized public void saveClaims(Collection<Claim> claims)
+    {
+        for (Claim claim : claims)
+        {
+            assignClaimID(claim);
+            this.claimSaveQueue.add(claim);
+        }
+
+        this.scheduleClaimWrites();
+    }
+
+    //writes the queued claim saves and deletes, now or on the claim saver depending on the config
+    private void scheduleClaimWrites()
+    {
+        int delay = GriefPrevention.instance.config_claims_saveDelayMillis;
+        if (delay <= 0 || this.claimSaveExecutor.isShutdown())
+        {
+            this.flushClaimSaves();
+        }
+        else if (this.claimSaveQueue.size() >= GriefPrevention.instance.config_claims_maxWaitingSaves)
+        {
+            //too many writes are waiting, so start on them right away rather than letting the queue keep growing
+            this.claimSaveExecutor.execute(this::flushClaimSaves);
+        }
+        else if (this.claimSaveFlushScheduled.compareAndSet(false, true))
+        {
+            this.claimSaveExecutor.schedule(this::flushClaimSaves, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //writes every claim save and delete waiting in the queue
+    //doesn't need the data store's lock, the queue holds copies of saved claims
+    void flushClaimSaves()
+    {
+        this.claimSaveFlushScheduled.set(false);
 
-        this.writeClaimToStorage(claim);
+        //draining under the write lock keeps batches from being written out of order
+        synchronized (this.claimWriteLock)
+        {
+            List<ClaimSaveQueue.Write> writes = this.claimSaveQueue.drain();
+            if (writes.isEmpty()) return;
+
+            long start = System.nanoTime();
+            ArrayList<Claim> saves = new ArrayList<>();
+            for (ClaimSaveQueue.Write write : writes)
+            {
+                if (!write.delete)
+                {
+                    saves.add(write.getClaim());
+                    continue;
+                }
+
+                //earlier saves go first so the delete isn't undone
+                if (!saves.isEmpty())
+                {
+                    this.writeClaimsToStorage(saves);
+                    saves.clear();
+                }
+                this.deleteClaimFromSecondaryStorage(write.getClaim());
+            }
+            if (!saves.isEmpty())
+            {
+                this.writeClaimsToStorage(saves);
+            }
+            long nanos = System.nanoTime() - start;
+            this.claimSaveQueue.recordFlush(writes.size(), nanos);
+
+            GriefPrevention.AddLogEntry("Wrote " + writes.size() + " claims in " + nanos / 1000 + "us.", CustomLogEntryTypes.Debug, true);
+        }
+    }
+
+    //counts describing queued claim saves, for diagnostics
+    public String getClaimSaveStats()
+    {
+        return this.claimSaveQueue.getStats();
     }
 
-    private void assignClaimID(Claim claim)
+    void assignClaimID(Claim claim)
     {
         //ensure a unique identifier for the claim which will be used to name the file on disk
         if (claim.id == null || claim.id == -1)
         {
-            claim.id = this.nextClaimID;
-            this.incrementNextClaimID();
+            claim.id = this.allocateClaimID();
+
+            //claims already in the data store must also become reachable by their new ID
+            if (claim.inDataStore)
+            {
+                ClaimIndex.Builder changes = this.editClaimIndex();
+                changes.assignedID(claim);
+                this.publishClaimIndex(changes);
+            }
         }
     }
 
     abstract void writeClaimToStorage(Claim claim);
 
-    //increments the claim ID and updates secondary storage to be sure it's saved
-    abstract void incrementNextClaimID();
-
-    //retrieves player data from memory or secondary storage, as necessary
-    //if the player has never been on the server before, this will return a fresh player data with default values
-    synchronized public PlayerData getPlayerData(UUID playerID)
+    void writeClaimsToStorage(Collection<Claim> claims)
     {
-        //first, look in memory
-        PlayerData playerData = this.playerNameToPlayerDataMap.get(playerID);
+        for (Claim claim : claims)
+        {
+            this.writeClaimToStorage(claim);
+        }
+    }
 
-        //if not there, build a fresh instance with some blanks for what may be in secondary storage
-        if (playerData == null)
+    //writes every queued claim save and stops the claim saver, call before closing the data store
+    //claims saved afterward are written immediately
+    void waitForClaimSaves()
+    {
+        //a flush scheduled for later isn't needed, the queue is flushed below
+        this.claimSaveExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.claimSaveExecutor.shutdown();
+        try
         {
-            playerData = new PlayerData();
-            playerData.playerID = playerID;
+            if (!this.claimSaveExecutor.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                GriefPrevention.AddLogEntry("Timed out waiting for claims to save.", CustomLogEntryTypes.Exception);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        this.flushClaimSaves();
+        GriefPrevention.AddLogEntry("Claim saves: " + this.getClaimSaveStats() + ".", CustomLogEntryTypes.Debug, true);
+    }
 
-            //shove that new player data into the hash map cache
-            this.playerNameToPlayerDataMap.put(playerID, playerData);
+    //hands out the next claim ID, reserving another block of IDs when the current block runs out
+    //the end of a new block is saved before any ID in it is used, and startup resumes from the saved end,
+    //so IDs are never reused even after a crash.  the unused rest of a block is skipped, which is harmless
+    long allocateClaimID()
+    {
+        if (this.nextClaimID >= this.claimIDLimit)
+        {
+            this.claimIDLimit = this.nextClaimID + CLAIM_ID_BLOCK_SIZE;
+            this.saveClaimIDLimit(this.claimIDLimit);
         }
 
-        return playerData;
+        return this.nextClaimID++;
+    }
+
+    //saves the end of the reserved block of claim IDs to secondary storage, loaded as the next claim ID at startup
+    abstract void saveClaimIDLimit(long limit);
+
+    //retrieves player data from memory or secondary storage, as necessary
+    //if the player has never been on the server before, this will return a fresh player data with default values
+    //the cache is a concurrent map, so this doesn't need to lock the data store
+    public PlayerData getPlayerData(UUID playerID)
+    {
+        //look in memory, and if not there, build a fresh instance with some blanks for what may be in secondary storage
+        return this.playerNameToPlayerDataMap.computeIfAbsent(playerID, id ->
+        {
+            PlayerData playerData = new PlayerData();
+            playerData.playerID = id;
+            return playerData;
+        });
     }
 
     abstract PlayerData getPlayerDataFromStorage(UUID playerID);
@@ -654,34 +861,42 @@ public abstract class DataStore
 
         //mark as deleted so any references elsewhere can be ignored
         claim.inDataStore = false;
+        this.trusteeIndex.remove(claim);
+
 
         //remove from memory
-        for (int i = 0; i < this.claims.size(); i++)
+        //subdivisions are only tracked by their parent and the claim index, so there's nothing to scan for
+        if (claim.parent == null)
         {
-            if (claims.get(i).id.equals(claim.id))
+            for (int i = 0; i < this.claims.size(); i++)
             {
-                this.claims.remove(i);
-                break;
+                if (claims.get(i).id.equals(claim.id))
+                {
+                    this.claims.remove(i);
+                    break;
+                }
             }
+
+            this.ownerIndex.remove(claim, claim.ownerID);
         }
 
-        removeFromChunkClaimMap(claim);
+        ClaimIndex.Builder changes = this.editClaimIndex();
+        changes.remove(claim);
+        this.publishClaimIndex(changes);
 
-        //remove from secondary storage
-        this.deleteClaimFromSecondaryStorage(claim);
+        //remove from secondary storage, after any save of it still waiting
+        //claims without an ID were never saved, so there's nothing to remove
+        if (claim.id != null)
+        {
+            this.claimSaveQueue.delete(claim);
+            this.scheduleClaimWrites();
+        }
 
         //update player data
         if (claim.ownerID != null)
         {
             PlayerData ownerData = this.getPlayerData(claim.ownerID);
-            for (int i = 0; i < ownerData.getClaims().size(); i++)
-            {
-                if (ownerData.getClaims().get(i).id.equals(claim.id))
-                {
-                    ownerData.getClaims().remove(i);
-                    break;
-                }
-            }
+            ownerData.removeClaim(claim);
             this.savePlayerData(claim.ownerID, ownerData);
         }
 
@@ -734,7 +949,7 @@ public abstract class DataStore
     //gets the claim at a specific location
     //ignoreHeight = TRUE means that a location UNDER an existing claim will return the claim
     //cachedClaim can be NULL, but will help performance if you have a reasonable guess about which claim the location is in
-    synchronized public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim)
+    public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim)
     {
         return getClaimAt(location, ignoreHeight, false, cachedClaim);
     }
@@ -751,50 +966,124 @@ public abstract class DataStore
      * @param cachedClaim the cached claim, if any
      * @return the claim containing the location or null if no claim exists there
      */
-    synchronized public Claim getClaimAt(Location location, boolean ignoreHeight, boolean ignoreSubclaims, Claim cachedClaim)
+    public Claim getClaimAt(Location location, boolean ignoreHeight, boolean ignoreSubclaims, Claim cachedClaim)
     {
         //check cachedClaim guess first.  if it's in the datastore and the location is inside it, we're done
         if (cachedClaim != null && cachedClaim.inDataStore && cachedClaim.contains(location, ignoreHeight, !ignoreSubclaims))
             return cachedClaim;
 
         //find a top level claim
-        Long chunkID = getChunkHash(location);
-        ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkID);
-        if (claimsInChunk == null) return null;
+        //reads the published index, so this is safe from any thread without locking
+        Claim claim = this.claimIndex.getTopLevelClaimAt(location, ignoreHeight);
+        if (claim == null) return null;
+
+        // If ignoring subclaims, claim is a match.
+        if (ignoreSubclaims) return claim;
+
+        return getSubdivisionAt(claim, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight);
+    }
 
-        for (Claim claim : claimsInChunk)
+    //when we find a top level claim, if the location is in one of its subdivisions,
+    //return the SUBDIVISION, not the top level claim
+    private static Claim getSubdivisionAt(Claim claim, World world, int x, int y, int z, boolean ignoreHeight)
+    {
+        for (Claim subdivision : claim.getSubdivisionIndex().getCandidates(x, z))
         {
-            if (claim.inDataStore && claim.contains(location, ignoreHeight, false))
-            {
-                // If ignoring subclaims, claim is a match.
-                if (ignoreSubclaims) return claim;
+            if (subdivision.inDataStore && subdivision.contains(world, x, y, z, ignoreHeight, false))
+                return subdivision;
+        }
 
-                //when we find a top level claim, if the location is in one of its subdivisions,
-                //return the SUBDIVISION, not the top level claim
-                for (int j = 0; j < claim.children.size(); j++)
-                {
-                    Claim subdivision = claim.children.get(j);
-                    if (subdivision.inDataStore && subdivision.contains(location, ignoreHeight, false))
-                        return subdivision;
-                }
+        return claim;
+    }
 
-                return claim;
-            }
+    /**
+     * Get the claims at many blocks in one world at once.
+     *
+     * <p>This is faster than calling {@link #getClaimAt(Location, boolean, boolean, Claim)} for each block,
+     * and doesn't allocate per block. Runs of blocks in the same chunk share a single index lookup,
+     * so keep nearby blocks together where possible.
+     *
+     * @param world the world containing every block
+     * @param positions the blocks' coordinates, see {@link #packBlockPosition(int, int, int)}
+     * @param ignoreHeight whether or not to check containment vertically
+     * @param ignoreSubclaims whether or not subclaims should be returned over claims
+     * @return the claim containing each block, or null where no claim exists, in the same order as the positions
+     */
+    public Claim[] getClaimsAt(World world, long[] positions, boolean ignoreHeight, boolean ignoreSubclaims)
+    {
+        //reads the published index, so this is safe from any thread without locking
+        Claim[] claims = new Claim[positions.length];
+        this.claimIndex.getTopLevelClaimsAt(world, positions, ignoreHeight, claims);
+        if (ignoreSubclaims) return claims;
+
+        for (int i = 0; i < claims.length; i++)
+        {
+            Claim claim = claims[i];
+            if (claim == null || claim.getChildrenSnapshot().length == 0) continue;
+
+            long position = positions[i];
+            claims[i] = getSubdivisionAt(claim, world, unpackBlockX(position), unpackBlockY(position), unpackBlockZ(position), ignoreHeight);
         }
 
-        //if no claim found, return null
-        return null;
+        return claims;
     }
 
-    //finds a claim by ID
-    public synchronized Claim getClaim(long id)
+    /**
+     * Get the claims at many blocks at once.
+     *
+     * @param blocks the blocks, all in the same world
+     * @param ignoreHeight whether or not to check containment vertically
+     * @return the claim containing each block, or null where no claim exists, in the same order as the blocks
+     * @see #getClaimsAt(World, long[], boolean, boolean)
+     */
+    public Claim[] getClaimsAt(List<Block> blocks, boolean ignoreHeight)
     {
-        for (Claim claim : this.claims)
+        if (blocks.isEmpty()) return new Claim[0];
+
+        long[] positions = new long[blocks.size()];
+        for (int i = 0; i < positions.length; i++)
         {
-            if (claim.inDataStore && claim.getID() == id) return claim;
+            Block block = blocks.get(i);
+            positions[i] = packBlockPosition(block.getX(), block.getY(), block.getZ());
         }
 
-        return null;
+        return this.getClaimsAt(blocks.get(0).getWorld(), positions, ignoreHeight, false);
+    }
+
+    /**
+     * Pack block coordinates into a single value for {@link #getClaimsAt(World, long[], boolean, boolean)}.
+     *
+     * <p>X and Z keep 26 bits and Y keeps 12 bits, enough for any block inside the world border.
+     *
+     * @param x the block X coordinate
+     * @param y the block Y coordinate
+     * @param z the block Z coordinate
+     * @return the packed coordinates
+     */
+    public static long packBlockPosition(int x, int y, int z)
+    {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    static int unpackBlockX(long position)
+    {
+        return (int) (position >> 38);
+    }
+
+    static int unpackBlockY(long position)
+    {
+        return (int) (position << 52 >> 52);
+    }
+
+    static int unpackBlockZ(long position)
+    {
+        return (int) (position << 26 >> 38);
+    }
+
+    //finds a claim or subdivision by ID
+    public Claim getClaim(long id)
+    {
+        return this.claimIndex.getClaim(id);
     }
 
     //returns a read-only access point for the list of all land claims
@@ -805,17 +1094,120 @@ public abstract class DataStore
         return Collections.unmodifiableCollection(this.claims);
     }
 
-    public Collection<Claim> getClaims(int chunkx, int chunkz)
+    /**
+     * Get the top level claims owned by a player.
+     *
+     * @param ownerID the owner's UUID, or null for administrative claims
+     * @return a read-only list of claims
+     */
+    public List<Claim> getClaimsByOwner(UUID ownerID)
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.ownerIndex.get(ownerID)));
+    }
+
+    /**
+     * Get the claims and subdivisions in which a player has been explicitly trusted.
+     *
+     * <p>Any level of trust counts, including permission to manage. Trust granted through
+     * "public" or a [permission.node] is not included.
+     *
+     * @param trusteeID the trusted player's UUID
+     * @return a snapshot of the claims, in no particular order
+     */
+    public List<Claim> getTrustedClaims(UUID trusteeID)
+    {
+        return this.trusteeIndex.get(trusteeID);
+    }
+
+    /**
+     * Revoke a player's explicit trust in every claim and subdivision.
+     *
+     * <p>All the changed claims are saved together, on another thread.
+     *
+     * @param trusteeID the trusted player's UUID
+     * @return the claims and subdivisions the player was trusted in
+     */
+    synchronized public List<Claim> revokeTrust(UUID trusteeID)
     {
-        ArrayList<Claim> chunkClaims = this.chunksToClaimsMap.get(getChunkHash(chunkx, chunkz));
-        if (chunkClaims != null)
+        List<Claim> claims = this.trusteeIndex.get(trusteeID);
+        String trusteeIDString = trusteeID.toString();
+        for (Claim claim : claims)
         {
-            return Collections.unmodifiableCollection(chunkClaims);
+            claim.dropPermission(trusteeIDString);
         }
-        else
+
+        this.saveClaims(claims);
+        return claims;
+    }
+
+    /**
+     * Get the UUIDs of all players owning at least one top level claim.
+     *
+     * @return a read-only set of owner UUIDs
+     */
+    public Set<UUID> getClaimOwners()
+    {
+        return this.ownerIndex.getOwners();
+    }
+
+    /**
+     * Get the top level claims intersecting a bounding box.
+     *
+     * <p>Only claims sharing chunks with the box are tested, so the cost depends on the size of
+     * the box rather than the total number of claims.
+     *
+     * @param world the world containing the box
+     * @param box the bounding box
+     * @return a new list of claims
+     */
+    public List<Claim> getClaimsIntersecting(World world, BoundingBox box)
+    {
+        Set<Claim> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.claimIndex.collectClaimsInChunks(world, box.getMinX() >> 4, box.getMinZ() >> 4, box.getMaxX() >> 4, box.getMaxZ() >> 4, candidates);
+
+        List<Claim> claims = new ArrayList<>();
+        for (Claim claim : candidates)
         {
-            return Collections.unmodifiableCollection(new ArrayList<>());
+            if (claim.inDataStore && claim.intersects(box))
+            {
+                claims.add(claim);
+            }
         }
+
+        return claims;
+    }
+
+    /**
+     * Get the top level claims overlapping a chunk in any world.
+     *
+     * @param chunkx the chunk X coordinate
+     * @param chunkz the chunk Z coordinate
+     * @return a read-only collection of claims
+     * @deprecated chunk coordinates are not unique across worlds, use {@link #getClaims(World, int, int)}
+     */
+    @Deprecated
+    public Collection<Claim> getClaims(int chunkx, int chunkz)
+    {
+        Claim[] chunkClaims = this.claimIndex.getClaimsInChunkInAllWorlds(chunkx, chunkz);
+        if (chunkClaims == null) return Collections.emptyList();
+
+        return Collections.unmodifiableList(Arrays.asList(chunkClaims));
+    }
+
+    /**
+     * Get the top level claims overlapping a chunk.
+     *
+     * @param world the world containing the chunk
+     * @param chunkx the chunk X coordinate
+     * @param chunkz the chunk Z coordinate
+     * @return a read-only collection of claims
+     */
+    public Collection<Claim> getClaims(World world, int chunkx, int chunkz)
+    {
+        Claim[] chunkClaims = this.claimIndex.getClaimsInChunk(world, chunkx, chunkz);
+        if (chunkClaims == null) return Collections.emptyList();
+
+        return Collections.unmodifiableList(Arrays.asList(chunkClaims));
     }
 
     //gets an almost-unique, persistent identifier for a chunk
@@ -929,7 +1321,7 @@ public abstract class DataStore
         }
 
         //creative mode claims always go to bedrock
-        if (GriefPrevention.instance.config_claims_worldModes.get(world) == ClaimsMode.Creative)
+        if (GriefPrevention.instance.getWorldRules(world).creativeRules)
         {
             smally = world.getMinHeight();
         }
@@ -948,20 +1340,22 @@ public abstract class DataStore
         newClaim.parent = parent;
 
         //ensure this new claim won't overlap any existing claims
-        ArrayList<Claim> claimsToCheck;
+        //top level claims only need to be checked against claims sharing chunks with the new one
+        BoundingBox newClaimBox = new BoundingBox(newClaim);
+        Collection<Claim> claimsToCheck;
         if (newClaim.parent != null)
         {
             claimsToCheck = newClaim.parent.children;
         }
         else
         {
-            claimsToCheck = this.claims;
+            claimsToCheck = this.getClaimsIntersecting(world, newClaimBox);
         }
 
         for (Claim otherClaim : claimsToCheck)
         {
             //if we find an existing claim which will be overlapped
-            if (otherClaim.id != newClaim.id && otherClaim.inDataStore && otherClaim.overlaps(newClaim))
+            if (otherClaim.id != newClaim.id && otherClaim.inDataStore && otherClaim.intersects(newClaimBox))
             {
                 //result = fail, return conflicting claim
                 result.succeeded = false;
@@ -1122,6 +1516,7 @@ public abstract class DataStore
         Stream.concat(Stream.of(claim), claim.children.stream()).forEach(localClaim -> {
             localClaim.lesserBoundaryCorner.setY(depth);
             localClaim.greaterBoundaryCorner.setY(Math.max(localClaim.greaterBoundaryCorner.getBlockY(), depth));
+            localClaim.updateBounds();
             this.saveClaim(localClaim);
         });
     }
@@ -1346,12 +1741,7 @@ public abstract class DataStore
     synchronized public void deleteClaimsForPlayer(UUID playerID, boolean releasePets)
     {
         //make a list of the player's claims
-        ArrayList<Claim> claimsToDelete = new ArrayList<>();
-        for (Claim claim : this.claims)
-        {
-            if ((playerID == claim.ownerID || (playerID != null && playerID.equals(claim.ownerID))))
-                claimsToDelete.add(claim);
-        }
+        Claim[] claimsToDelete = this.ownerIndex.get(playerID);
 
         //delete them one by one
         for (Claim claim : claimsToDelete)
@@ -1378,15 +1768,23 @@ public abstract class DataStore
         //if succeeded
         if (result.succeeded)
         {
-            removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
+            ClaimIndex.Builder changes = this.editClaimIndex();
+            changes.beginMove(claim); // remove the old boundary from the chunk index
+            int oldArea = claim.getArea();
             // copy the boundary from the claim created in the dry run of createClaim() to our existing claim
-            claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
-            claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
+            claim.setBoundaries(result.claim.lesserBoundaryCorner, result.claim.greaterBoundaryCorner);
+
+            // top level claims count against their owner's claim blocks
+            if (claim.parent == null && claim.ownerID != null)
+            {
+                this.getPlayerData(claim.ownerID).adjustUsedClaimBlocks(claim.getArea() - oldArea);
+            }
             // Sanitize claim depth, expanding parent down to the lowest subdivision and subdivisions down to parent.
             // Also saves affected claims.
             setNewDepth(claim, claim.getLesserBoundaryCorner().getBlockY());
             result.claim = claim;
-            addToChunkClaimMap(claim); // add the new boundary to the chunk cache
+            changes.endMove(claim); // add the new boundary to the chunk index
+            this.publishClaimIndex(changes);
         }
 
         return result;
@@ -1436,8 +1834,7 @@ public abstract class DataStore
         Claim oldClaim = playerData.claimResizing;
         Claim newClaim = new Claim(oldClaim);
         World world = newClaim.getLesserBoundaryCorner().getWorld();
-        newClaim.lesserBoundaryCorner = new Location(world, newx1, newy1, newz1);
-        newClaim.greaterBoundaryCorner = new Location(world, newx2, newy2, newz2);
+        newClaim.setBoundaries(new Location(world, newx1, newy1, newz1), new Location(world, newx2, newy2, newz2));
 
         //call event here to check if it has been cancelled
         ClaimResizeEvent event = new ClaimResizeEvent(oldClaim, newClaim, player);
@@ -1810,6 +2207,7 @@ public abstract class DataStore
         this.addDefault(defaults, Messages.SubclaimUnrestricted, "This subclaim's permissions will now inherit from the parent claim", null);
 
         this.addDefault(defaults, Messages.NetherPortalTrapDetectionMessage, "It seems you might be stuck inside a nether portal. We will rescue you in a few seconds if that is the case!", "Sent to player on join, if they left while inside a nether portal.");
+        this.addDefault(defaults, Messages.RevokeTrustSuccess, "Revoked {0}'s trust in {1} claims.", "0: trusted player's name; 1: number of claims and subdivisions");
 
         //load the config file
         FileConfiguration config = YamlConfiguration.loadConfiguration(new File(messagesFilePath));
@@ -1938,34 +2336,23 @@ public abstract class DataStore
         }
     }
 
-    //gets all the claims "near" a location
+    //gets all the claims "near" a location, within the investigation tool radius from the config
     Set<Claim> getNearbyClaims(Location location)
     {
-        Set<Claim> claims = new HashSet<>();
+        return this.getNearbyClaims(location, GriefPrevention.instance.config_claims_investigationToolNearbyRadius);
+    }
 
-        Chunk lesserChunk = location.getWorld().getChunkAt(location.subtract(150, 0, 150));
-        Chunk greaterChunk = location.getWorld().getChunkAt(location.add(300, 0, 300));
+    //gets the top level claims sharing chunks with a square area around a location
+    //works only with coordinates and the claim index, so it never loads or generates chunks
+    Set<Claim> getNearbyClaims(Location location, int radius)
+    {
+        Set<Claim> claims = new HashSet<>();
 
-        for (int chunk_x = lesserChunk.getX(); chunk_x <= greaterChunk.getX(); chunk_x++)
-        {
-            for (int chunk_z = lesserChunk.getZ(); chunk_z <= greaterChunk.getZ(); chunk_z++)
-            {
-                Chunk chunk = location.getWorld().getChunkAt(chunk_x, chunk_z);
-                Long chunkID = getChunkHash(chunk.getBlock(0, 0, 0).getLocation());
-                ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkID);
-                if (claimsInChunk != null)
-                {
-                    for (Claim claim : claimsInChunk)
-                    {
-                        if (claim.inDataStore && claim.getLesserBoundaryCorner().getWorld().equals(location.getWorld()))
-                        {
-                            claims.add(claim);
-                        }
-                    }
-                }
-            }
-        }
+        int blockX = location.getBlockX();
+        int blockZ = location.getBlockZ();
+        this.claimIndex.collectClaimsInChunks(location.getWorld(), (blockX - radius) >> 4, (blockZ - radius) >> 4, (blockX + radius) >> 4, (blockZ + radius) >> 4, claims);
 
+        claims.removeIf(claim -> !claim.inDataStore);
         return claims;
     }
 
@@ -0,0 +1,271 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+//a small pool of database connections, so work on different threads doesn't queue up behind one shared connection
+//each connection keeps the statements prepared on it, so the same SQL isn't prepared again for every call
+//a thread which already holds a connection gets that same connection when it asks again, so nested calls share its
+//transaction and can't deadlock waiting for a second connection
+class DatabaseConnectionPool
+{
+    //connections used more recently than this are assumed to still be good, skipping the round trip to validate them
+    private final static long VALIDATION_INTERVAL_MILLIS = 5000;
+
+    private final String url;
+    private final Properties properties;
+    private final int validationTimeoutSeconds;
+    private final long borrowTimeoutMillis;
+
+    //one permit for each connection which may be open at once
+    private final Semaphore permits;
+
+    //open connections which no thread holds, most recently used first
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+
+    //the connection each thread holds, if any
+    private final ThreadLocal<PooledConnection> held = new ThreadLocal<>();
+
+    private volatile boolean closed = false;
+
+    DatabaseConnectionPool(String url, Properties properties, int maxConnections, int validationTimeoutSeconds, long borrowTimeoutMillis)
+    {
+        this.url = url;
+        this.properties = properties;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(Math.max(1, maxConnections), true);
+    }
+
+    //gets a connection for the calling thread, waiting for one to be free if they're all in use
+    //close the result (try-with-resources) to give it back
+    PooledConnection borrow() throws SQLException
+    {
+        PooledConnection connection = this.held.get();
+        if (connection != null)
+        {
+            connection.holds++;
+            return connection;
+        }
+
+        if (this.closed) throw new SQLException("The database connection pool is closed.");
+
+        try
+        {
+            if (!this.permits.tryAcquire(this.borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+            {
+                throw new SQLException("Timed out waiting for a database connection.");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try
+        {
+            connection = this.takeIdleConnection();
+            if (connection == null)
+            {
+                connection = new PooledConnection(DriverManager.getConnection(this.url, this.properties));
+            }
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            this.permits.release();
+            throw e;
+        }
+
+        connection.holds = 1;
+        this.held.set(connection);
+        return connection;
+    }
+
+    //takes the most recently used idle connection which still works, closing any which don't
+    private PooledConnection takeIdleConnection()
+    {
+        while (true)
+        {
+            PooledConnection connection;
+            synchronized (this.idle)
+            {
+                connection = this.idle.pollFirst();
+            }
+            if (connection == null) return null;
+
+            if (System.currentTimeMillis() - connection.lastUsed < VALIDATION_INTERVAL_MILLIS || connection.isValid()) return connection;
+
+            connection.discard();
+        }
+    }
+
+    private void release(PooledConnection connection)
+    {
+        this.held.remove();
+        connection.lastUsed = System.currentTimeMillis();
+
+        boolean kept = false;
+        if (connection.reset())
+        {
+            synchronized (this.idle)
+            {
+                if (!this.closed)
+                {
+                    this.idle.addFirst(connection);
+                    kept = true;
+                }
+            }
+        }
+        if (!kept) connection.discard();
+
+        this.permits.release();
+    }
+
+    //closes every idle connection, connections in use are closed as they're given back
+    void close()
+    {
+        List<PooledConnection> connections;
+        synchronized (this.idle)
+        {
+            this.closed = true;
+            connections = new ArrayList<>(this.idle);
+            this.idle.clear();
+        }
+
+        for (PooledConnection connection : connections)
+        {
+            connection.discard();
+        }
+    }
+
+    int getIdleCount()
+    {
+        synchronized (this.idle)
+        {
+            return this.idle.size();
+        }
+    }
+
+    //a connection borrowed from the pool, only to be used by the thread which borrowed it
+    class PooledConnection implements AutoCloseable
+    {
+        private final Connection connection;
+
+        //SQL -> statement prepared on this connection
+        private final HashMap<String, PreparedStatement> statements = new HashMap<>();
+
+        //how many times the holding thread has borrowed this connection without closing it
+        private int holds = 0;
+
+        private long lastUsed = 0;
+
+        private PooledConnection(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        Connection getConnection()
+        {
+            return this.connection;
+        }
+
+        //returns this connection's statement for the SQL, preparing it the first time
+        //the statement belongs to the connection, so don't close it
+        PreparedStatement prepareStatement(String sql) throws SQLException
+        {
+            PreparedStatement statement = this.statements.get(sql);
+            if (statement == null || statement.isClosed())
+            {
+                statement = this.connection.prepareStatement(sql);
+                this.statements.put(sql, statement);
+            }
+            else
+            {
+                statement.clearParameters();
+            }
+
+            return statement;
+        }
+
+        //gives the connection back to the pool once every borrow of it has been closed
+        @Override
+        public void close()
+        {
+            if (--this.holds == 0)
+            {
+                DatabaseConnectionPool.this.release(this);
+            }
+        }
+
+        private boolean isValid()
+        {
+            try
+            {
+                return this.connection.isValid(DatabaseConnectionPool.this.validationTimeoutSeconds);
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        //undoes anything the holder left unfinished, returning whether the connection can be used again
+        private boolean reset()
+        {
+            try
+            {
+                if (this.connection.isClosed()) return false;
+
+                if (!this.connection.getAutoCommit())
+                {
+                    this.connection.rollback();
+                    this.connection.setAutoCommit(true);
+                }
+
+                return true;
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        //closing the connection also closes its statements
+        private void discard()
+        {
+            try
+            {
+                this.connection.close();
+            }
+            catch (SQLException ignored) { }
+        }
+    }
+}
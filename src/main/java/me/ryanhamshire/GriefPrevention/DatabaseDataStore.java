@@ -26,7 +26,6 @@ import org.bukkit.World;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -34,6 +33,8 @@ import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -69,17 +70,25 @@ public class DatabaseDataStore extends DataStore
     private static final String SQL_SELECT_SCHEMA_VERSION =
             "SELECT * FROM griefprevention_schemaversion";
 
-    private Connection databaseConnection = null;
+    //how long to wait for a connection when they're all in use
+    private static final long CONNECTION_WAIT_MILLIS = 30000;
+
+    private final DatabaseConnectionPool connectionPool;
 
     private final String databaseUrl;
-    private final String userName;
-    private final String password;
 
-    DatabaseDataStore(String url, String userName, String password) throws Exception
+    DatabaseDataStore(String url, String userName, String password, int poolSize, int validationTimeoutSeconds) throws Exception
     {
         this.databaseUrl = url;
-        this.userName = userName;
-        this.password = password;
+
+        //set username/pass properties
+        Properties connectionProps = new Properties();
+        connectionProps.put("user", userName);
+        connectionProps.put("password", password);
+        connectionProps.put("autoReconnect", "true");
+        connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
+
+        this.connectionPool = new DatabaseConnectionPool(url, connectionProps, poolSize, validationTimeoutSeconds, CONNECTION_WAIT_MILLIS);
 
         this.initialize();
     }
@@ -87,9 +96,10 @@ public class DatabaseDataStore extends DataStore
     @Override
     void initialize() throws Exception
     {
+        DatabaseConnectionPool.PooledConnection connection;
         try
         {
-            this.refreshDataConnection();
+            connection = this.connectionPool.borrow();
         }
         catch (Exception e2)
         {
@@ -97,6 +107,17 @@ public class DatabaseDataStore extends DataStore
             throw e2;
         }
 
+        //one connection for the whole load, which the schema version lookups along the way also use
+        try (connection)
+        {
+            this.loadData(connection.getConnection());
+        }
+
+        super.initialize();
+    }
+
+    private void loadData(Connection databaseConnection) throws Exception
+    {
         try (Statement statement = databaseConnection.createStatement())
         {
             //ensure the data tables exist
@@ -171,10 +192,8 @@ public class DatabaseDataStore extends DataStore
         {
             try
             {
-                this.refreshDataConnection();
-
                 //pull ALL player data from the database
-                statement = this.databaseConnection.createStatement();
+                statement = databaseConnection.createStatement();
                 results = statement.executeQuery("SELECT * FROM griefprevention_playerdata");
 
                 //make a list of changes to be made
@@ -226,12 +245,9 @@ public class DatabaseDataStore extends DataStore
                     catch (Exception ex) { }
                 }
 
-                //refresh data connection in case data migration took a long time
-                this.refreshDataConnection();
-
                 for (String name : changes.keySet())
                 {
-                    try (PreparedStatement updateStmnt = this.databaseConnection.prepareStatement(SQL_UPDATE_NAME))
+                    try (PreparedStatement updateStmnt = databaseConnection.prepareStatement(SQL_UPDATE_NAME))
                     {
                         updateStmnt.setString(1, changes.get(name).toString());
                         updateStmnt.setString(2, name);
@@ -254,7 +270,7 @@ public class DatabaseDataStore extends DataStore
 
         if (this.getSchemaVersion() <= 2)
         {
-            statement = this.databaseConnection.createStatement();
+            statement = databaseConnection.createStatement();
             statement.execute("ALTER TABLE griefprevention_claimdata ADD inheritNothing BOOLEAN DEFAULT 0 AFTER managers");
         }
 
@@ -266,6 +282,9 @@ public class DatabaseDataStore extends DataStore
         ArrayList<Claim> subdivisionsToLoad = new ArrayList<>();
         List<World> validWorlds = Bukkit.getServer().getWorlds();
 
+        //publish the claim index once per pass rather than after every claim
+        this.beginClaimIndexBatch();
+
         Long claimID = null;
         while (results.next())
         {
@@ -370,6 +389,9 @@ public class DatabaseDataStore extends DataStore
             }
         }
 
+        //parents are looked up by location, so make sure the top level claims are visible first
+        this.flushClaimIndexBatch();
+
         //add subdivisions to their parent claims
         for (Claim childClaim : subdivisionsToLoad)
         {
@@ -385,10 +407,11 @@ public class DatabaseDataStore extends DataStore
 
             //add this claim to the list of children of the current top level claim
             childClaim.parent = topLevelClaim;
-            topLevelClaim.children.add(childClaim);
-            childClaim.inDataStore = true;
+            this.addClaim(childClaim, false);
         }
 
+        this.endClaimIndexBatch();
+
         for (Claim claim : claimsToRemove)
         {
             this.deleteClaimFromSecondaryStorage(claim);
@@ -396,26 +419,17 @@ public class DatabaseDataStore extends DataStore
 
         if (this.getSchemaVersion() <= 2)
         {
-            this.refreshDataConnection();
-            statement = this.databaseConnection.createStatement();
+            statement = databaseConnection.createStatement();
             statement.execute("DELETE FROM griefprevention_claimdata WHERE id = '-1'");
         }
-
-        super.initialize();
     }
 
     @Override
-    synchronized void writeClaimToStorage(Claim claim)  //see datastore.cs.  this will ALWAYS be a top level claim
+    void writeClaimToStorage(Claim claim)  //see datastore.cs.  this will ALWAYS be a top level claim
     {
         try
         {
-            this.refreshDataConnection();
-
-            //wipe out any existing data about this claim
-            this.deleteClaimFromSecondaryStorage(claim);
-
-            //write claim data to the database
-            this.writeClaimData(claim);
+            this.replaceClaimData(Collections.singletonList(claim));
         }
         catch (SQLException e)
         {
@@ -424,8 +438,52 @@ public class DatabaseDataStore extends DataStore
         }
     }
 
-    //actually writes claim data to the database
-    synchronized private void writeClaimData(Claim claim) throws SQLException
+    @Override
+    void writeClaimsToStorage(Collection<Claim> claims)
+    {
+        try
+        {
+            this.replaceClaimData(claims);
+        }
+        catch (SQLException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to save data for " + claims.size() + " claims.  Details:");
+            GriefPrevention.AddLogEntry(e.getMessage());
+        }
+    }
+
+    //replaces the stored data for claims in one transaction, so a failure part way through leaves every claim as it was
+    private void replaceClaimData(Collection<Claim> claims) throws SQLException
+    {
+        //the statements below borrow this same connection, so they're part of the transaction
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
+        {
+            Connection databaseConnection = connection.getConnection();
+            databaseConnection.setAutoCommit(false);
+            try
+            {
+                for (Claim claim : claims)
+                {
+                    //wipe out any existing data about this claim, then write it again
+                    this.deleteClaimData(claim);
+                    this.writeClaimData(claim);
+                }
+                databaseConnection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                databaseConnection.rollback();
+                throw e;
+            }
+            finally
+            {
+                databaseConnection.setAutoCommit(true);
+            }
+        }
+    }
+
+    //actually writes claim data to the database, leaving failures to the caller so a transaction can roll back
+    private void writeClaimData(Claim claim) throws SQLException
     {
         String lesserCornerString = this.locationToString(claim.getLesserBoundaryCorner());
         String greaterCornerString = this.locationToString(claim.getGreaterBoundaryCorner());
@@ -446,8 +504,9 @@ public class DatabaseDataStore extends DataStore
         boolean inheritNothing = claim.getSubclaimRestrictions();
         long parentId = claim.parent == null ? -1 : claim.parent.id;
 
-        try (PreparedStatement insertStmt = this.databaseConnection.prepareStatement(SQL_INSERT_CLAIM))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement insertStmt = connection.prepareStatement(SQL_INSERT_CLAIM);
 
             insertStmt.setLong(1, claim.id);
             insertStmt.setString(2, owner);
@@ -461,21 +520,15 @@ public class DatabaseDataStore extends DataStore
             insertStmt.setLong(10, parentId);
             insertStmt.executeUpdate();
         }
-        catch (SQLException e)
-        {
-            GriefPrevention.AddLogEntry("Unable to save data for claim at " + this.locationToString(claim.lesserBoundaryCorner) + ".  Details:");
-            GriefPrevention.AddLogEntry(e.getMessage());
-        }
     }
 
     //deletes a claim from the database
     @Override
-    synchronized void deleteClaimFromSecondaryStorage(Claim claim)
+    void deleteClaimFromSecondaryStorage(Claim claim)
     {
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_CLAIM))
+        try
         {
-            deleteStmnt.setLong(1, claim.id);
-            deleteStmnt.executeUpdate();
+            this.deleteClaimData(claim);
         }
         catch (SQLException e)
         {
@@ -485,22 +538,34 @@ public class DatabaseDataStore extends DataStore
         }
     }
 
+    private void deleteClaimData(Claim claim) throws SQLException
+    {
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
+        {
+            PreparedStatement deleteStmnt = connection.prepareStatement(SQL_DELETE_CLAIM);
+            deleteStmnt.setLong(1, claim.id);
+            deleteStmnt.executeUpdate();
+        }
+    }
+
     @Override
     PlayerData getPlayerDataFromStorage(UUID playerID)
     {
         PlayerData playerData = new PlayerData();
         playerData.playerID = playerID;
 
-        try (PreparedStatement selectStmnt = this.databaseConnection.prepareStatement(SQL_SELECT_PLAYER_DATA))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement selectStmnt = connection.prepareStatement(SQL_SELECT_PLAYER_DATA);
             selectStmnt.setString(1, playerID.toString());
-            ResultSet results = selectStmnt.executeQuery();
-
-            //if data for this player exists, use it
-            if (results.next())
+            try (ResultSet results = selectStmnt.executeQuery())
             {
-                playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
-                playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
+                //if data for this player exists, use it
+                if (results.next())
+                {
+                    playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
+                    playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
+                }
             }
         }
         catch (SQLException e)
@@ -525,9 +590,10 @@ public class DatabaseDataStore extends DataStore
 
     private void savePlayerData(String playerID, PlayerData playerData)
     {
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_PLAYER_DATA);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_INSERT_PLAYER_DATA))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement deleteStmnt = connection.prepareStatement(SQL_DELETE_PLAYER_DATA);
+            PreparedStatement insertStmnt = connection.prepareStatement(SQL_INSERT_PLAYER_DATA);
             OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(playerID));
 
             SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -550,38 +616,57 @@ public class DatabaseDataStore extends DataStore
     }
 
     @Override
-    synchronized void incrementNextClaimID()
-    {
-        this.setNextClaimID(this.nextClaimID + 1);
-    }
-
-    //sets the next claim ID.  used by incrementNextClaimID() above, and also while migrating data from a flat file data store
-    synchronized void setNextClaimID(long nextID)
+    synchronized void saveClaimIDLimit(long limit)
     {
-        this.nextClaimID = nextID;
-
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_NEXT_CLAIM_ID);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_SET_NEXT_CLAIM_ID))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
-            deleteStmnt.execute();
-            insertStmnt.setLong(1, nextID);
-            insertStmnt.executeUpdate();
+            PreparedStatement deleteStmnt = connection.prepareStatement(SQL_DELETE_NEXT_CLAIM_ID);
+            PreparedStatement insertStmnt = connection.prepareStatement(SQL_SET_NEXT_CLAIM_ID);
+
+            //replace the row in one transaction, so a failure in between can't leave the table empty
+            Connection databaseConnection = connection.getConnection();
+            databaseConnection.setAutoCommit(false);
+            try
+            {
+                deleteStmnt.execute();
+                insertStmnt.setLong(1, limit);
+                insertStmnt.executeUpdate();
+                databaseConnection.commit();
+            }
+            catch (SQLException e)
+            {
+                databaseConnection.rollback();
+                throw e;
+            }
+            finally
+            {
+                databaseConnection.setAutoCommit(true);
+            }
         }
         catch (SQLException e)
         {
-            GriefPrevention.AddLogEntry("Unable to set next claim ID to " + nextID + ".  Details:");
+            GriefPrevention.AddLogEntry("Unable to set next claim ID to " + limit + ".  Details:");
             GriefPrevention.AddLogEntry(e.getMessage());
         }
     }
 
+    //sets the next claim ID.  used while migrating data from a flat file data store
+    synchronized void setNextClaimID(long nextID)
+    {
+        this.nextClaimID = nextID;
+        this.claimIDLimit = nextID;
+        this.saveClaimIDLimit(nextID);
+    }
+
     //updates the database with a group's bonus blocks
     @Override
-    synchronized void saveGroupBonusBlocks(String groupName, int currentValue)
+    void saveGroupBonusBlocks(String groupName, int currentValue)
     {
         //group bonus blocks are stored in the player data table, with player name = $groupName
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_GROUP_DATA);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_INSERT_PLAYER_DATA))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement deleteStmnt = connection.prepareStatement(SQL_DELETE_GROUP_DATA);
+            PreparedStatement insertStmnt = connection.prepareStatement(SQL_INSERT_PLAYER_DATA);
             SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
             String dateString = sqlFormat.format(new Date());
             deleteStmnt.setString(1, '$' + groupName);
@@ -603,50 +688,15 @@ public class DatabaseDataStore extends DataStore
     @Override
     synchronized void close()
     {
-        if (this.databaseConnection != null)
-        {
-            try
-            {
-                if (!this.databaseConnection.isClosed())
-                {
-                    this.databaseConnection.close();
-                }
-            }
-            catch (SQLException e) {}
-            ;
-        }
-
-        this.databaseConnection = null;
-    }
-
-    private synchronized void refreshDataConnection() throws SQLException
-    {
-        if (this.databaseConnection == null || !this.databaseConnection.isValid(3))
-        {
-            if (this.databaseConnection != null && !this.databaseConnection.isClosed())
-            {
-                this.databaseConnection.close();
-            }
-
-            //set username/pass properties
-            Properties connectionProps = new Properties();
-            connectionProps.put("user", this.userName);
-            connectionProps.put("password", this.password);
-            connectionProps.put("autoReconnect", "true");
-            connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
-
-            //establish connection
-            this.databaseConnection = DriverManager.getConnection(this.databaseUrl, connectionProps);
-        }
+        this.connectionPool.close();
     }
 
     @Override
     protected int getSchemaVersionFromStorage()
     {
-        try (PreparedStatement selectStmnt = this.databaseConnection.prepareStatement(SQL_SELECT_SCHEMA_VERSION))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow();
+             ResultSet results = connection.prepareStatement(SQL_SELECT_SCHEMA_VERSION).executeQuery())
         {
-            ResultSet results = selectStmnt.executeQuery();
-
             //if there's nothing yet, assume 0 and add it
             if (!results.next())
             {
@@ -671,9 +721,10 @@ public class DatabaseDataStore extends DataStore
     @Override
     protected void updateSchemaVersionInStorage(int versionToSet)
     {
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_SCHEMA_VERSION);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_INSERT_SCHEMA_VERSION))
+        try (DatabaseConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement deleteStmnt = connection.prepareStatement(SQL_DELETE_SCHEMA_VERSION);
+            PreparedStatement insertStmnt = connection.prepareStatement(SQL_INSERT_SCHEMA_VERSION);
             deleteStmnt.execute();
 
             insertStmnt.setInt(1, versionToSet);
@@ -48,7 +48,7 @@ class EntityCleanupTask implements Runnable
         ArrayList<World> worlds = new ArrayList<>();
         for (World world : GriefPrevention.instance.getServer().getWorlds())
         {
-            if (GriefPrevention.instance.config_claims_worldModes.get(world) == ClaimsMode.Creative)
+            if (GriefPrevention.instance.getWorldRules(world).creativeRules)
             {
                 worlds.add(world);
             }
@@ -154,7 +154,7 @@ public class EntityEventHandler implements Listener
             event.setCancelled(true);
         }
         // All other handling depends on claims being enabled.
-        else if (GriefPrevention.instance.config_claims_worldModes.get(event.getBlock().getWorld()) == ClaimsMode.Disabled)
+        else if (GriefPrevention.instance.getWorldRules(event.getBlock().getWorld()).claimsMode == ClaimsMode.Disabled)
         {
             return;
         }
@@ -232,7 +232,7 @@ public class EntityEventHandler implements Listener
                 if (originalLocation.getBlockX() != newLocation.getBlockX() || originalLocation.getBlockZ() != newLocation.getBlockZ())
                 {
                     //in creative mode worlds, never form the block
-                    if (GriefPrevention.instance.config_claims_worldModes.get(newLocation.getWorld()) == ClaimsMode.Creative)
+                    if (GriefPrevention.instance.getWorldRules(newLocation.getWorld()).creativeRules)
                     {
                         event.setCancelled(true);
                         entity.remove();
@@ -280,7 +280,7 @@ public class EntityEventHandler implements Listener
             }
 
             // No modification in the wilderness in creative mode.
-            if (instance.creativeRulesApply(block.getLocation()) || instance.config_claims_worldModes.get(block.getWorld()) == ClaimsMode.SurvivalRequiringClaims)
+            if (instance.getWorldRules(block.getWorld()).claimsRequired)
             {
                 event.setCancelled(true);
                 return;
@@ -392,8 +392,9 @@ public class EntityEventHandler implements Listener
     {
         //only applies to claims-enabled worlds
         World world = location.getWorld();
+        WorldRules worldRules = GriefPrevention.instance.getWorldRules(world);
 
-        if (!GriefPrevention.instance.claimsEnabledForWorld(world)) return;
+        if (!worldRules.claimsEnabled) return;
 
         //FEATURE: explosions don't destroy surface blocks by default
         boolean isCreeper = (entity != null && entity.getType() == EntityType.CREEPER);
@@ -401,7 +402,7 @@ public class EntityEventHandler implements Listener
         boolean applySurfaceRules = world.getEnvironment() == Environment.NORMAL && ((isCreeper && GriefPrevention.instance.config_blockSurfaceCreeperExplosions) || (!isCreeper && GriefPrevention.instance.config_blockSurfaceOtherExplosions));
 
         //special rule for creative worlds: explosions don't destroy anything
-        if (GriefPrevention.instance.creativeRulesApply(location))
+        if (worldRules.creativeRules)
         {
             for (int i = 0; i < blocks.size(); i++)
             {
@@ -415,18 +416,16 @@ public class EntityEventHandler implements Listener
 
         //make a list of blocks which were allowed to explode
         List<Block> explodedBlocks = new ArrayList<>();
-        Claim cachedClaim = null;
-        for (Block block : blocks)
+        Claim[] claims = this.dataStore.getClaimsAt(blocks, false);
+        for (int i = 0; i < blocks.size(); i++)
         {
+            Block block = blocks.get(i);
+
             //always ignore air blocks
             if (block.getType() == Material.AIR) continue;
 
             //is it in a land claim?
-            Claim claim = this.dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
-            if (claim != null)
-            {
-                cachedClaim = claim;
-            }
+            Claim claim = claims[i];
 
             //if yes, apply claim exemptions if they should apply
             if (claim != null && (claim.areExplosivesAllowed || !GriefPrevention.instance.config_blockClaimExplosions))
@@ -447,7 +446,7 @@ public class EntityEventHandler implements Listener
             //if no, then also consider surface rules
             if (claim == null)
             {
-                if (!applySurfaceRules || block.getLocation().getBlockY() < GriefPrevention.instance.getSeaLevel(world) - 7)
+                if (!applySurfaceRules || block.getY() < worldRules.seaLevel - 7)
                 {
                     explodedBlocks.add(block);
                 }
@@ -555,10 +554,11 @@ public class EntityEventHandler implements Listener
         LivingEntity entity = event.getEntity();
 
         //don't do the rest in worlds where claims are not enabled
-        if (!GriefPrevention.instance.claimsEnabledForWorld(entity.getWorld())) return;
+        WorldRules worldRules = GriefPrevention.instance.getWorldRules(entity.getWorld());
+        if (!worldRules.claimsEnabled) return;
 
         //special rule for creative worlds: killed entities don't drop items or experience orbs
-        if (GriefPrevention.instance.creativeRulesApply(entity.getLocation()))
+        if (worldRules.creativeRules)
         {
             event.setDroppedExp(0);
             event.getDrops().clear();
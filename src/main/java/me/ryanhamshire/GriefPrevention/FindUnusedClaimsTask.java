@@ -18,12 +18,11 @@
 
 package me.ryanhamshire.GriefPrevention;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 //FEATURE: automatically remove claims owned by inactive players which:
 //...aren't protecting much OR
@@ -60,8 +59,7 @@ class FindUnusedClaimsTask implements Runnable
     public void refreshUUIDs()
     {
         // Fetch owner UUIDs from list of claims
-        claimOwnerUUIDs = GriefPrevention.instance.dataStore.claims.stream().map(claim -> claim.ownerID)
-                .distinct().filter(Objects::nonNull).collect(Collectors.toList());
+        claimOwnerUUIDs = new ArrayList<>(GriefPrevention.instance.dataStore.getClaimOwners());
 
         if (!claimOwnerUUIDs.isEmpty())
         {
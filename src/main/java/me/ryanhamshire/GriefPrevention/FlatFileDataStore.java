@@ -34,20 +34,22 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 
 //manages data stored in the file system
 public class FlatFileDataStore extends DataStore
 {
-    private final static String claimDataFolderPath = dataLayerFolderPath + File.separator + "ClaimData";
+    final static String claimDataFolderPath = dataLayerFolderPath + File.separator + "ClaimData";
     private final static String nextClaimIdFilePath = claimDataFolderPath + File.separator + "_nextClaimID";
     private final static String schemaVersionFilePath = dataLayerFolderPath + File.separator + "_schemaVersion";
 
@@ -200,8 +202,25 @@ public class FlatFileDataStore extends DataStore
         }
 
         //load claims data into memory
+        //publish the claim index once at the end rather than after every claim
+        this.beginClaimIndexBatch();
+        try
+        {
+            this.loadClaims();
+        }
+        finally
+        {
+            this.endClaimIndexBatch();
+        }
+
+        super.initialize();
+    }
+
+    //loads every claim from secondary storage, called while the claim index is being built in one batch
+    void loadClaims() throws Exception
+    {
         //get a list of all the files in the claims data folder
-        files = claimDataFolder.listFiles();
+        File[] files = new File(claimDataFolderPath).listFiles();
 
         if (this.getSchemaVersion() <= 1)
         {
@@ -211,8 +230,6 @@ public class FlatFileDataStore extends DataStore
         {
             this.loadClaimData(files);
         }
-
-        super.initialize();
     }
 
     void loadClaimData_Legacy(File[] files) throws Exception
@@ -238,8 +255,7 @@ public class FlatFileDataStore extends DataStore
                 //those files need to be "converted" by renaming them to a unique ID
                 catch (Exception e)
                 {
-                    claimID = this.nextClaimID;
-                    this.incrementNextClaimID();
+                    claimID = this.allocateClaimID();
                     File newFile = new File(claimDataFolderPath + File.separator + String.valueOf(this.nextClaimID));
                     files[i].renameTo(newFile);
                     files[i] = newFile;
@@ -356,6 +372,7 @@ public class FlatFileDataStore extends DataStore
                             subdivision.parent = topLevelClaim;
                             topLevelClaim.children.add(subdivision);
                             subdivision.inDataStore = true;
+                            this.trusteeIndex.add(subdivision);
                         }
 
                         //move up to the first line in the next subdivision
@@ -392,9 +409,30 @@ public class FlatFileDataStore extends DataStore
         }
     }
 
+    //a claim file read and parsed by loadClaimData(), or the problem which stopped it loading
+    private static class LoadedClaim
+    {
+        final File file;
+        final long claimID;
+        Claim claim;
+        long parentID = -1;
+        Exception error;
+
+        LoadedClaim(File file, long claimID)
+        {
+            this.file = file;
+            this.claimID = claimID;
+        }
+    }
+
+    //reading and parsing claim files is independent for each claim, so it's spread over every core
+    //everything which changes the data store (assigning IDs, adding claims, linking subdivisions) stays on this thread
     void loadClaimData(File[] files) throws Exception
     {
-        ConcurrentHashMap<Claim, Long> orphans = new ConcurrentHashMap<>();
+        long start = System.currentTimeMillis();
+
+        //find the claim files and their IDs
+        ArrayList<LoadedClaim> loadedClaims = new ArrayList<>(files.length);
         for (int i = 0; i < files.length; i++)
         {
             if (files[i].isFile())  //avoids folders
@@ -421,54 +459,91 @@ public class FlatFileDataStore extends DataStore
                 //those files need to be "converted" by renaming them to a unique ID
                 catch (Exception e)
                 {
-                    claimID = this.nextClaimID;
-                    this.incrementNextClaimID();
+                    claimID = this.allocateClaimID();
                     File newFile = new File(claimDataFolderPath + File.separator + String.valueOf(this.nextClaimID) + ".yml");
                     files[i].renameTo(newFile);
                     files[i] = newFile;
                 }
 
+                loadedClaims.add(new LoadedClaim(files[i], claimID));
+            }
+        }
+
+        //merge in claim ID order, so claims load the same way whatever order the file system lists them in
+        loadedClaims.sort(Comparator.comparingLong(loadedClaim -> loadedClaim.claimID));
+        long scanned = System.currentTimeMillis();
+
+        //read and parse the files in parallel
+        List<World> validWorlds = Bukkit.getServer().getWorlds();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try
+        {
+            pool.submit(() -> loadedClaims.parallelStream().forEach(loadedClaim ->
+            {
                 try
                 {
                     ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
-                    Claim claim = this.loadClaim(files[i], out_parentID, claimID);
-                    if (out_parentID.size() == 0 || out_parentID.get(0) == -1)
-                    {
-                        this.addClaim(claim, false);
-                    }
-                    else
-                    {
-                        orphans.put(claim, out_parentID.get(0));
-                    }
+                    String input = Files.asCharSource(loadedClaim.file, StandardCharsets.UTF_8).read();
+                    loadedClaim.claim = this.loadClaim(input, out_parentID, loadedClaim.file.lastModified(), loadedClaim.claimID, validWorlds);
+                    if (out_parentID.size() > 0) loadedClaim.parentID = out_parentID.get(0);
                 }
-
-                //if there's any problem with the file's content, log an error message and skip it
                 catch (Exception e)
                 {
-                    if (e.getMessage() != null && e.getMessage().contains("World not found"))
-                    {
-                        GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimID + ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
-                    }
-                    else
-                    {
-                        StringWriter errors = new StringWriter();
-                        e.printStackTrace(new PrintWriter(errors));
-                        GriefPrevention.AddLogEntry(files[i].getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
-                    }
+                    loadedClaim.error = e;
+                }
+            })).get();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        long parsed = System.currentTimeMillis();
+
+        //add the top level claims
+        ArrayList<LoadedClaim> orphans = new ArrayList<>();
+        for (LoadedClaim loadedClaim : loadedClaims)
+        {
+            //if there's any problem with the file's content, log an error message and skip it
+            Exception e = loadedClaim.error;
+            if (e != null)
+            {
+                if (e.getMessage() != null && e.getMessage().contains("World not found"))
+                {
+                    GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + loadedClaim.claimID + ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
+                }
+                else
+                {
+                    StringWriter errors = new StringWriter();
+                    e.printStackTrace(new PrintWriter(errors));
+                    GriefPrevention.AddLogEntry(loadedClaim.file.getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
                 }
             }
+            else if (loadedClaim.parentID == -1)
+            {
+                this.addClaim(loadedClaim.claim, false);
+            }
+            else
+            {
+                orphans.add(loadedClaim);
+            }
         }
 
         //link children to parents
-        for (Claim child : orphans.keySet())
+        //parents are looked up by ID, so make sure the top level claims are visible first
+        this.flushClaimIndexBatch();
+        for (LoadedClaim orphan : orphans)
         {
-            Claim parent = this.getClaim(orphans.get(child));
+            Claim parent = this.getClaim(orphan.parentID);
             if (parent != null)
             {
-                child.parent = parent;
-                this.addClaim(child, false);
+                orphan.claim.parent = parent;
+                this.addClaim(orphan.claim, false);
             }
         }
+        long merged = System.currentTimeMillis();
+
+        GriefPrevention.AddLogEntry("Loaded " + loadedClaims.size() + " claim files in " + (merged - start) + "ms (scan " + (scanned - start) +
+                "ms, read and parse " + (parsed - scanned) + "ms, merge " + (merged - parsed) + "ms).");
     }
 
     Claim loadClaim(File file, ArrayList<Long> out_parentID, long claimID) throws IOException, InvalidConfigurationException, Exception
@@ -567,7 +642,7 @@ public class FlatFileDataStore extends DataStore
     }
 
     @Override
-    synchronized void writeClaimToStorage(Claim claim)
+    void writeClaimToStorage(Claim claim)
     {
         String claimID = String.valueOf(claim.id);
 
@@ -592,7 +667,7 @@ public class FlatFileDataStore extends DataStore
 
     //deletes a claim from the file system
     @Override
-    synchronized void deleteClaimFromSecondaryStorage(Claim claim)
+    void deleteClaimFromSecondaryStorage(Claim claim)
     {
         String claimID = String.valueOf(claim.id);
 
@@ -731,21 +806,15 @@ public class FlatFileDataStore extends DataStore
     }
 
     @Override
-    synchronized void incrementNextClaimID()
+    synchronized void saveClaimIDLimit(long limit)
     {
-        //increment in memory
-        this.nextClaimID++;
-
-        BufferedWriter outStream = null;
-
         try
         {
-            //open the file and write the new value
+            //write a new file and then replace the old one, so a crash part way through can't leave a damaged file behind
             File nextClaimIdFile = new File(nextClaimIdFilePath);
-            nextClaimIdFile.createNewFile();
-            outStream = new BufferedWriter(new FileWriter(nextClaimIdFile));
-
-            outStream.write(String.valueOf(this.nextClaimID));
+            File tempFile = new File(nextClaimIdFilePath + ".tmp");
+            Files.asCharSink(tempFile, StandardCharsets.UTF_8).write(String.valueOf(limit));
+            Files.move(tempFile, nextClaimIdFile);
         }
 
         //if any problem, log it
@@ -754,13 +823,6 @@ public class FlatFileDataStore extends DataStore
             GriefPrevention.AddLogEntry("Unexpected exception saving next claim ID: " + e.getMessage());
             e.printStackTrace();
         }
-
-        //close the file
-        try
-        {
-            if (outStream != null) outStream.close();
-        }
-        catch (IOException exception) {}
     }
 
     //grants a group (players with a specific permission) bonus claim blocks as long as they're still members of the group
@@ -801,6 +863,7 @@ public class FlatFileDataStore extends DataStore
     synchronized void migrateData(DatabaseDataStore databaseStore)
     {
         //migrate claims
+        databaseStore.beginClaimIndexBatch();
         for (Claim claim : this.claims)
         {
             databaseStore.addClaim(claim, true);
@@ -809,6 +872,7 @@ public class FlatFileDataStore extends DataStore
                 databaseStore.addClaim(child, true);
             }
         }
+        databaseStore.endClaimIndexBatch();
 
         //migrate groups
         for (Map.Entry<String, Integer> groupEntry : this.permissionToBonusBlocksMap.entrySet())
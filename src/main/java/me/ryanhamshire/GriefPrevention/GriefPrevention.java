@@ -44,6 +44,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.inventory.EquipmentSlot;
@@ -85,6 +86,9 @@ public class GriefPrevention extends JavaPlugin
     // Event handlers with common functionality
     EntityEventHandler entityEventHandler;
 
+    //only registered while siege is enabled somewhere, see updateSiegeEventHandler()
+    private SiegeEventHandler siegeEventHandler;
+
     //this tracks item stacks expected to drop which will need protection
     ArrayList<PendingItemProtection> pendingItemWatchList = new ArrayList<>();
 
@@ -96,6 +100,8 @@ public class GriefPrevention extends JavaPlugin
     //claim mode for each world
     public ConcurrentHashMap<World, ClaimsMode> config_claims_worldModes;
     private boolean config_creativeWorldsExist;                     //note on whether there are any creative mode worlds, to save cpu cycles on a common hash lookup
+    private volatile HashMap<World, WorldRules> worldRules = new HashMap<>();  //each world's settings, compiled from the config, see getWorldRules()
+    InteractionRules interactionRules;                              //what clicking each material requires, compiled from the config
 
     public boolean config_claims_preventGlobalMonsterEggs; //whether monster eggs can be placed regardless of trust.
     public boolean config_claims_preventTheft;                        //whether containers and crafting blocks are protectable
@@ -136,6 +142,11 @@ public class GriefPrevention extends JavaPlugin
     public boolean config_claims_allowTrappedInAdminClaims;            //whether it should be allowed to use /trapped in adminclaims.
 
     public Material config_claims_investigationTool;                //which material will be used to investigate claims with a right click
+    public int config_claims_investigationToolNearbyRadius;         //how far (in blocks) sneak-clicking with the investigation tool looks for claims
+    public int config_claims_permissionCacheMillis;                 //how long permission-based results (claim trust, group bonus blocks) are remembered.  zero disables the caches
+    public boolean config_claims_logStructuredStorage;              //whether file mode keeps claims in an append-only log instead of one file per claim
+    public int config_claims_saveDelayMillis;                       //how long a claim save waits to be written, so repeated saves become one write.  zero writes immediately
+    public int config_claims_maxWaitingSaves;                       //how many claims may wait to be written before saving writes them immediately
     public Material config_claims_modificationTool;                    //which material will be used to create/resize claims with a right click
 
     public ArrayList<String> config_claims_commandsRequiringAccessTrust; //the list of slash commands requiring access trust when in a claim
@@ -236,6 +247,8 @@ public class GriefPrevention extends JavaPlugin
     private String databaseUrl;
     private String databaseUserName;
     private String databasePassword;
+    private int databasePoolSize;
+    private int databaseValidationTimeoutSeconds;
 
 
     //how far away to search from a tree trunk for its branch blocks
@@ -281,7 +294,13 @@ public class GriefPrevention extends JavaPlugin
         {
             try
             {
-                DatabaseDataStore databaseStore = new DatabaseDataStore(this.databaseUrl, this.databaseUserName, this.databasePassword);
+                DatabaseDataStore databaseStore = new DatabaseDataStore(this.databaseUrl, this.databaseUserName, this.databasePassword, this.databasePoolSize, this.databaseValidationTimeoutSeconds);
+
+                //claims in a claim log go back to claim files first, so they're migrated along with everything else
+                if (LogFileDataStore.hasClaimLog())
+                {
+                    LogFileDataStore.exportClaimData();
+                }
 
                 if (FlatFileDataStore.hasData())
                 {
@@ -319,9 +338,26 @@ public class GriefPrevention extends JavaPlugin
                     oldplayerdata.renameTo(playerdata);
                 }
             }
+            //claims left in a claim log when it's turned off must go back to claim files, or they'd all be missing
+            if (!this.config_claims_logStructuredStorage && LogFileDataStore.hasClaimLog())
+            {
+                try
+                {
+                    LogFileDataStore.exportClaimData();
+                }
+                catch (Exception e)
+                {
+                    GriefPrevention.AddLogEntry("Unable to export claims from the claim log, so GriefPrevention can't start without them.  Either fix the problem below or turn LogStructuredStorage back on.  Details:");
+                    GriefPrevention.AddLogEntry(e.getMessage());
+                    e.printStackTrace();
+                    this.getServer().getPluginManager().disablePlugin(this);
+                    return;
+                }
+            }
+
             try
             {
-                this.dataStore = new FlatFileDataStore();
+                this.dataStore = this.config_claims_logStructuredStorage ? new LogFileDataStore() : new FlatFileDataStore();
             }
             catch (Exception e)
             {
@@ -366,8 +402,7 @@ public class GriefPrevention extends JavaPlugin
         pluginManager.registerEvents(entityEventHandler, this);
 
         //siege events
-        SiegeEventHandler siegeEventHandler = new SiegeEventHandler();
-        pluginManager.registerEvents(siegeEventHandler, this);
+        this.updateSiegeEventHandler();
 
         //vault-based economy integration
         economyHandler = new EconomyHandler(this);
@@ -396,6 +431,23 @@ public class GriefPrevention extends JavaPlugin
         catch (Throwable ignored) {}
     }
 
+    //the siege handler listens for claim permission checks, which are much cheaper when nothing listens to them
+    //so it's only registered while siege is enabled in at least one world
+    private void updateSiegeEventHandler()
+    {
+        boolean siegeEnabled = !this.config_siege_enabledWorlds.isEmpty();
+        if (siegeEnabled && this.siegeEventHandler == null)
+        {
+            this.siegeEventHandler = new SiegeEventHandler();
+            this.getServer().getPluginManager().registerEvents(this.siegeEventHandler, this);
+        }
+        else if (!siegeEnabled && this.siegeEventHandler != null)
+        {
+            HandlerList.unregisterAll(this.siegeEventHandler);
+            this.siegeEventHandler = null;
+        }
+    }
+
     private void loadConfig()
     {
         //load the config if it exists
@@ -647,6 +699,12 @@ public class GriefPrevention extends JavaPlugin
             this.config_claims_investigationTool = Material.STICK;
         }
 
+        this.config_claims_investigationToolNearbyRadius = Math.max(0, config.getInt("GriefPrevention.Claims.InvestigationToolNearbyRadius", 150));
+        this.config_claims_permissionCacheMillis = Math.max(0, config.getInt("GriefPrevention.Claims.PermissionCacheMilliseconds", 5000));
+        this.config_claims_logStructuredStorage = config.getBoolean("GriefPrevention.Claims.LogStructuredStorage", false);
+        this.config_claims_saveDelayMillis = Math.max(0, config.getInt("GriefPrevention.Claims.SaveDelayMilliseconds", 2000));
+        this.config_claims_maxWaitingSaves = Math.max(1, config.getInt("GriefPrevention.Claims.MaximumWaitingSaves", 1000));
+
         //default for claim creation/modification tool
         String modificationToolMaterialName = Material.GOLDEN_SHOVEL.name();
 
@@ -753,6 +811,8 @@ public class GriefPrevention extends JavaPlugin
         this.databaseUrl = config.getString("GriefPrevention.Database.URL", "");
         this.databaseUserName = config.getString("GriefPrevention.Database.UserName", "");
         this.databasePassword = config.getString("GriefPrevention.Database.Password", "");
+        this.databasePoolSize = Math.max(1, config.getInt("GriefPrevention.Database.PoolSize", 4));
+        this.databaseValidationTimeoutSeconds = Math.max(1, config.getInt("GriefPrevention.Database.ValidationTimeoutSeconds", 3));
 
         this.config_advanced_fixNegativeClaimblockAmounts = config.getBoolean("GriefPrevention.Advanced.fixNegativeClaimblockAmounts", true);
         this.config_advanced_claim_expiration_check_rate = config.getInt("GriefPrevention.Advanced.ClaimExpirationCheckRate", 60);
@@ -800,6 +860,11 @@ public class GriefPrevention extends JavaPlugin
         outConfig.set("GriefPrevention.Claims.MinimumArea", this.config_claims_minArea);
         outConfig.set("GriefPrevention.Claims.MaximumDepth", this.config_claims_maxDepth);
         outConfig.set("GriefPrevention.Claims.InvestigationTool", this.config_claims_investigationTool.name());
+        outConfig.set("GriefPrevention.Claims.InvestigationToolNearbyRadius", this.config_claims_investigationToolNearbyRadius);
+        outConfig.set("GriefPrevention.Claims.PermissionCacheMilliseconds", this.config_claims_permissionCacheMillis);
+        outConfig.set("GriefPrevention.Claims.LogStructuredStorage", this.config_claims_logStructuredStorage);
+        outConfig.set("GriefPrevention.Claims.SaveDelayMilliseconds", this.config_claims_saveDelayMillis);
+        outConfig.set("GriefPrevention.Claims.MaximumWaitingSaves", this.config_claims_maxWaitingSaves);
         outConfig.set("GriefPrevention.Claims.ModificationTool", this.config_claims_modificationTool.name());
         outConfig.set("GriefPrevention.Claims.Expiration.ChestClaimDays", this.config_claims_chestClaimExpirationDays);
         outConfig.set("GriefPrevention.Claims.Expiration.UnusedClaimDays", this.config_claims_unusedClaimExpirationDays);
@@ -891,6 +956,8 @@ public class GriefPrevention extends JavaPlugin
         outConfig.set("GriefPrevention.Database.URL", this.databaseUrl);
         outConfig.set("GriefPrevention.Database.UserName", this.databaseUserName);
         outConfig.set("GriefPrevention.Database.Password", this.databasePassword);
+        outConfig.set("GriefPrevention.Database.PoolSize", this.databasePoolSize);
+        outConfig.set("GriefPrevention.Database.ValidationTimeoutSeconds", this.databaseValidationTimeoutSeconds);
 
         outConfig.set("GriefPrevention.UseBanCommand", this.config_ban_useCommand);
         outConfig.set("GriefPrevention.BanCommandPattern", this.config_ban_commandFormat);
@@ -950,6 +1017,32 @@ public class GriefPrevention extends JavaPlugin
         {
             this.config_pvp_blockedCommands.add(command.trim().toLowerCase());
         }
+
+        this.compileWorldRules();
+        this.interactionRules = new InteractionRules(this);
+    }
+
+    //works out every loaded world's rules from the config just read
+    //anything changing config_claims_worldModes and the other per-world settings afterward must call this again
+    void compileWorldRules()
+    {
+        HashMap<World, WorldRules> worldRules = new HashMap<>();
+        for (World world : this.getServer().getWorlds())
+        {
+            worldRules.put(world, WorldRules.compile(this, world));
+        }
+
+        this.worldRules = worldRules;
+    }
+
+    //gets the config settings for a world, so event handlers can look them up once per event
+    WorldRules getWorldRules(World world)
+    {
+        WorldRules rules = this.worldRules.get(world);
+        if (rules != null) return rules;
+
+        //worlds loaded after the config have no settings of their own, work out the defaults each time so they follow the world's pvp setting
+        return WorldRules.compile(this, world);
     }
 
     private ClaimsMode configStringToClaimsMode(String configSetting)
@@ -1269,6 +1362,7 @@ public class GriefPrevention extends JavaPlugin
             PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
 
             playerData.ignoreClaims = !playerData.ignoreClaims;
+            playerData.permissionDecisions.clear();
 
             //toggle ignore claims mode on or off
             if (!playerData.ignoreClaims)
@@ -1604,13 +1698,12 @@ public class GriefPrevention extends JavaPlugin
                     else
                     {
                         claim.dropPermission(idToDrop);
-                        claim.managers.remove(idToDrop);
                     }
-
-                    //save changes
-                    this.dataStore.saveClaim(claim);
                 }
 
+                //save changes in one batch off the main thread
+                this.dataStore.saveClaims(event.getClaims());
+
                 //beautify for output
                 if (args[0].equals("public"))
                 {
@@ -2076,6 +2169,39 @@ public class GriefPrevention extends JavaPlugin
 
             return true;
         }
+        else if (cmd.getName().equalsIgnoreCase("revoketrust"))
+        {
+            //requires exactly one parameter, the other player's name
+            if (args.length != 1) return false;
+
+            //try to find that player
+            OfflinePlayer otherPlayer = this.resolvePlayerByName(args[0]);
+            if (otherPlayer == null)
+            {
+                GriefPrevention.sendMessage(player, TextMode.Err, Messages.PlayerNotFound2);
+                return true;
+            }
+
+            //give other plugins a chance to object, as /untrust does
+            if (player != null)
+            {
+                TrustChangedEvent event = new TrustChangedEvent(player, this.dataStore.getTrustedClaims(otherPlayer.getUniqueId()), null, false, otherPlayer.getUniqueId().toString());
+                Bukkit.getPluginManager().callEvent(event);
+
+                if (event.isCancelled())
+                {
+                    return true;
+                }
+            }
+
+            //drop that player's trust everywhere, saving the affected claims in one batch
+            List<Claim> claims = this.dataStore.revokeTrust(otherPlayer.getUniqueId());
+
+            GriefPrevention.sendMessage(player, TextMode.Success, Messages.RevokeTrustSuccess, otherPlayer.getName(), String.valueOf(claims.size()));
+            GriefPrevention.AddLogEntry((player != null ? player.getName() : "The console") + " revoked " + otherPlayer.getName() + "'s trust in " + claims.size() + " claims.", CustomLogEntryTypes.AdminActivity);
+
+            return true;
+        }
         else if (cmd.getName().equalsIgnoreCase("deleteclaimsinworld"))
         {
             //must be executed at the console
@@ -2214,14 +2340,7 @@ public class GriefPrevention extends JavaPlugin
         else if (cmd.getName().equalsIgnoreCase("adminclaimslist"))
         {
             //find admin claims
-            Vector<Claim> claims = new Vector<>();
-            for (Claim claim : this.dataStore.claims)
-            {
-                if (claim.ownerID == null)  //admin claim
-                {
-                    claims.add(claim);
-                }
-            }
+            List<Claim> claims = this.dataStore.getClaimsByOwner(null);
             if (claims.size() > 0)
             {
                 GriefPrevention.sendMessage(player, TextMode.Instr, Messages.ClaimsListHeader);
@@ -2638,6 +2757,8 @@ public class GriefPrevention extends JavaPlugin
         else if (cmd.getName().equalsIgnoreCase("gpreload"))
         {
             this.loadConfig();
+            this.updateSiegeEventHandler();
+            this.dataStore.invalidateGroupBonusBlocks();
             if (player != null)
             {
                 GriefPrevention.sendMessage(player, TextMode.Success, "Configuration updated.  If you have updated your Grief Prevention JAR, you still need to /reload or reboot your server.");
@@ -3051,22 +3172,12 @@ public class GriefPrevention extends JavaPlugin
             return;
         }
 
-        //apply changes
+        //apply changes, then save every changed claim in one batch off the main thread
         for (Claim currentClaim : event.getClaims())
         {
-            if (permissionLevel == null)
-            {
-                if (!currentClaim.managers.contains(identifierToAdd))
-                {
-                    currentClaim.managers.add(identifierToAdd);
-                }
-            }
-            else
-            {
-                currentClaim.setPermission(identifierToAdd, permissionLevel);
-            }
-            this.dataStore.saveClaim(currentClaim);
+            currentClaim.setPermission(identifierToAdd, permissionLevel == null ? ClaimPermission.Manage : permissionLevel);
         }
+        this.dataStore.saveClaims(event.getClaims());
 
         //notify player
         if (recipientName.equals("public")) recipientName = this.dataStore.getMessage(Messages.CollectivePublic);
@@ -3227,8 +3338,11 @@ public class GriefPrevention extends JavaPlugin
             this.dataStore.savePlayerDataSync(playerID, playerData);
         }
 
+        this.dataStore.waitForClaimSaves();
         this.dataStore.close();
 
+        AddLogEntry("Claim permission decision cache: " + PermissionDecisionCache.getHits() + " hits, " + PermissionDecisionCache.getMisses() + " misses.", CustomLogEntryTypes.Debug, true);
+
         //dump any remaining unwritten log entries
         this.customLogger.WriteEntries();
 
@@ -3290,7 +3404,7 @@ public class GriefPrevention extends JavaPlugin
     //checks whether players siege in a world
     public boolean siegeEnabledForWorld(World world)
     {
-        return this.config_siege_enabledWorlds.contains(world);
+        return this.getWorldRules(world).siegeEnabled;
     }
 
     //moves a player from the claim he's in to a nearby wilderness location
@@ -3377,8 +3491,7 @@ public class GriefPrevention extends JavaPlugin
     //checks whether players can create claims in a world
     public boolean claimsEnabledForWorld(World world)
     {
-        ClaimsMode mode = this.config_claims_worldModes.get(world);
-        return mode != null && mode != ClaimsMode.Disabled;
+        return this.getWorldRules(world).claimsEnabled;
     }
 
     //determines whether creative anti-grief rules apply at a location
@@ -3386,7 +3499,7 @@ public class GriefPrevention extends JavaPlugin
     {
         if (!this.config_creativeWorldsExist) return false;
 
-        return this.config_claims_worldModes.get((location.getWorld())) == ClaimsMode.Creative;
+        return this.getWorldRules(location.getWorld()).creativeRules;
     }
 
     public String allowBuild(Player player, Location location)
@@ -3397,7 +3510,8 @@ public class GriefPrevention extends JavaPlugin
 
     public String allowBuild(Player player, Location location, Material material)
     {
-        if (!GriefPrevention.instance.claimsEnabledForWorld(location.getWorld())) return null;
+        WorldRules worldRules = this.getWorldRules(location.getWorld());
+        if (!worldRules.claimsEnabled) return null;
 
         PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
         Claim claim = this.dataStore.getClaimAt(location, false, playerData.lastClaim);
@@ -3409,7 +3523,7 @@ public class GriefPrevention extends JavaPlugin
         if (claim == null)
         {
             //no building in the wilderness in creative mode
-            if (this.creativeRulesApply(location) || this.config_claims_worldModes.get(location.getWorld()) == ClaimsMode.SurvivalRequiringClaims)
+            if (worldRules.claimsRequired)
             {
                 //exception: when chest claims are enabled, players who have zero land claims and are placing a chest
                 if (material != Material.CHEST || playerData.getClaims().size() > 0 || GriefPrevention.instance.config_claims_automaticClaimsForNewPlayersRadius == -1)
@@ -3460,7 +3574,8 @@ public class GriefPrevention extends JavaPlugin
 
     public String allowBreak(Player player, Block block, Location location, BlockBreakEvent breakEvent)
     {
-        if (!GriefPrevention.instance.claimsEnabledForWorld(location.getWorld())) return null;
+        WorldRules worldRules = this.getWorldRules(location.getWorld());
+        if (!worldRules.claimsEnabled) return null;
 
         PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
         Claim claim = this.dataStore.getClaimAt(location, false, playerData.lastClaim);
@@ -3472,7 +3587,7 @@ public class GriefPrevention extends JavaPlugin
         if (claim == null)
         {
             //no building in the wilderness in creative mode
-            if (this.creativeRulesApply(location) || this.config_claims_worldModes.get(location.getWorld()) == ClaimsMode.SurvivalRequiringClaims)
+            if (worldRules.claimsRequired)
             {
                 String reason = this.dataStore.getMessage(Messages.NoBuildOutsideClaims);
                 if (player.hasPermission("griefprevention.ignoreclaims"))
@@ -3599,15 +3714,7 @@ public class GriefPrevention extends JavaPlugin
 
     public int getSeaLevel(World world)
     {
-        Integer overrideValue = this.config_seaLevelOverride.get(world.getName());
-        if (overrideValue == null || overrideValue == -1)
-        {
-            return world.getSeaLevel();
-        }
-        else
-        {
-            return overrideValue;
-        }
+        return this.getWorldRules(world).seaLevel;
     }
 
     public boolean containsBlockedIP(String message)
@@ -3652,9 +3759,7 @@ public class GriefPrevention extends JavaPlugin
 
     public boolean pvpRulesApply(World world)
     {
-        Boolean configSetting = this.config_pvp_specifiedWorlds.get(world);
-        if (configSetting != null) return configSetting;
-        return world.getPVP();
+        return this.getWorldRules(world).pvpRules;
     }
 
     public static boolean isNewToServer(Player player)
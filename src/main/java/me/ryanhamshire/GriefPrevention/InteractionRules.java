@@ -0,0 +1,255 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.block.Block;
+import org.bukkit.event.block.Action;
+import org.bukkit.inventory.InventoryHolder;
+
+//what clicking a block, or clicking with an item, requires in a claim, worked out for every material when the config loads
+//saves PlayerEventHandler.onPlayerInteract() from testing tags and material lists on every click
+//built again on every config reload, since which blocks are protected depends on the config
+final class InteractionRules
+{
+    //what clicking a block requires
+    enum BlockRule
+    {
+        //nothing special, the item in hand decides
+        NONE,
+
+        //container trust, and no container use while under siege or in pvp combat
+        CONTAINER,
+
+        //access trust
+        ACCESS,
+
+        //build trust
+        BUILD
+    }
+
+    //what right clicking a block with an item requires, when the block itself doesn't need anything
+    enum ItemRule
+    {
+        //nothing special
+        NONE,
+
+        //build permission at the clicked block
+        BUILD,
+
+        //container trust, boats can be broken by anyone able to open containers
+        BOAT,
+
+        //container trust outside creative worlds, otherwise the creative entity rules
+        MINECART,
+
+        //in creative worlds, build permission and room under the claim's entity limit
+        CREATIVE_ENTITY
+    }
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private static final byte HOLDER_UNKNOWN = 0;
+    private static final byte HOLDER_YES = 1;
+    private static final byte HOLDER_NO = 2;
+
+    //indexed by material ordinal
+    private final BlockRule[] rightClickBlockRules = new BlockRule[MATERIALS.length];
+    private final BlockRule[] otherClickBlockRules = new BlockRule[MATERIALS.length];
+    private final ItemRule[] itemRules = new ItemRule[MATERIALS.length];
+
+    //whether blocks of each material hold an inventory, learned from the first block of the material clicked
+    //only the main thread uses this
+    private final byte[] inventoryHolders = new byte[MATERIALS.length];
+
+    private final boolean preventTheft;
+
+    InteractionRules(GriefPrevention plugin)
+    {
+        this.preventTheft = plugin.config_claims_preventTheft;
+
+        for (Material material : MATERIALS)
+        {
+            int index = material.ordinal();
+            if (material.isLegacy())
+            {
+                this.rightClickBlockRules[index] = this.otherClickBlockRules[index] = BlockRule.NONE;
+                this.itemRules[index] = ItemRule.NONE;
+                continue;
+            }
+
+            BlockRule otherClickRule = getBlockRule(plugin, material);
+            this.otherClickBlockRules[index] = otherClickRule;
+            this.rightClickBlockRules[index] = this.preventTheft && isContainerBlock(material) ? BlockRule.CONTAINER : otherClickRule;
+            this.itemRules[index] = getItemRule(plugin, material);
+        }
+    }
+
+    //blocks which are protected like containers when right clicked, besides those holding an inventory
+    private static boolean isContainerBlock(Material material)
+    {
+        switch (material)
+        {
+            case ANVIL:
+            case BEACON:
+            case BEE_NEST:
+            case BEEHIVE:
+            case BELL:
+            case CAKE:
+            case CARTOGRAPHY_TABLE:
+            case CAULDRON:
+            case CAVE_VINES:
+            case CAVE_VINES_PLANT:
+            case CHIPPED_ANVIL:
+            case DAMAGED_ANVIL:
+            case GRINDSTONE:
+            case JUKEBOX:
+            case LOOM:
+            case PUMPKIN:
+            case RESPAWN_ANCHOR:
+            case ROOTED_DIRT:
+            case STONECUTTER:
+            case SWEET_BERRY_BUSH:
+                return true;
+            default:
+                return Tag.CANDLES.isTagged(material) || Tag.CANDLE_CAKES.isTagged(material);
+        }
+    }
+
+    //what a block needs when it isn't protected as a container, in the order onPlayerInteract() used to test for them
+    private static BlockRule getBlockRule(GriefPrevention plugin, Material material)
+    {
+        //doors and beds, if configured that way
+        if (plugin.config_claims_lockWoodenDoors && Tag.WOODEN_DOORS.isTagged(material) ||
+                plugin.config_claims_preventButtonsSwitches && Tag.BEDS.isTagged(material) ||
+                plugin.config_claims_lockTrapDoors && Tag.WOODEN_TRAPDOORS.isTagged(material) ||
+                plugin.config_claims_lecternReadingRequiresAccessTrust && material == Material.LECTERN ||
+                plugin.config_claims_lockFenceGates && Tag.FENCE_GATES.isTagged(material))
+        {
+            return BlockRule.ACCESS;
+        }
+
+        //buttons and switches
+        if (plugin.config_claims_preventButtonsSwitches && (Tag.BUTTONS.isTagged(material) || material == Material.LEVER))
+        {
+            return BlockRule.ACCESS;
+        }
+
+        //cake
+        if (plugin.config_claims_preventTheft && (material == Material.CAKE || Tag.CANDLE_CAKES.isTagged(material)))
+        {
+            return BlockRule.ACCESS;
+        }
+
+        //note blocks, repeaters, daylight sensors and flower pots
+        if (material == Material.NOTE_BLOCK ||
+                material == Material.REPEATER ||
+                material == Material.DRAGON_EGG ||
+                material == Material.DAYLIGHT_DETECTOR ||
+                material == Material.COMPARATOR ||
+                material == Material.REDSTONE_WIRE ||
+                Tag.FLOWER_POTS.isTagged(material))
+        {
+            return BlockRule.BUILD;
+        }
+
+        return BlockRule.NONE;
+    }
+
+    private static ItemRule getItemRule(GriefPrevention plugin, Material material)
+    {
+        boolean spawnEgg = material.name().endsWith("_SPAWN_EGG");
+
+        //bonemeal, armor stands, spawn eggs and so on, flint and steel to stop TNT ignition, ink sacs and dyes for signs
+        if (material == Material.BONE_MEAL ||
+                material == Material.ARMOR_STAND ||
+                (spawnEgg && plugin.config_claims_preventGlobalMonsterEggs) ||
+                material == Material.END_CRYSTAL ||
+                material == Material.FLINT_AND_STEEL ||
+                material == Material.INK_SAC ||
+                material == Material.GLOW_INK_SAC ||
+                material.name().endsWith("_DYE"))
+        {
+            return ItemRule.BUILD;
+        }
+
+        if (Tag.ITEMS_BOATS.isTagged(material)) return ItemRule.BOAT;
+
+        if (material == Material.MINECART ||
+                material == Material.FURNACE_MINECART ||
+                material == Material.CHEST_MINECART ||
+                material == Material.TNT_MINECART ||
+                material == Material.HOPPER_MINECART)
+        {
+            return ItemRule.MINECART;
+        }
+
+        if (material == Material.ITEM_FRAME ||
+                material == Material.GLOW_ITEM_FRAME ||
+                spawnEgg ||
+                material == Material.INFESTED_STONE ||
+                material == Material.INFESTED_COBBLESTONE ||
+                material == Material.INFESTED_STONE_BRICKS ||
+                material == Material.INFESTED_MOSSY_STONE_BRICKS ||
+                material == Material.INFESTED_CRACKED_STONE_BRICKS ||
+                material == Material.INFESTED_CHISELED_STONE_BRICKS)
+        {
+            return ItemRule.CREATIVE_ENTITY;
+        }
+
+        return ItemRule.NONE;
+    }
+
+    //gets what clicking a block requires
+    BlockRule getBlockRule(Block block, Action action)
+    {
+        Material material = block.getType();
+        if (action != Action.RIGHT_CLICK_BLOCK) return this.otherClickBlockRules[material.ordinal()];
+
+        BlockRule rule = this.rightClickBlockRules[material.ordinal()];
+
+        //anything holding an inventory is a container, except lecterns which can be read without taking the book
+        if (rule != BlockRule.CONTAINER && this.preventTheft && material != Material.LECTERN && this.isInventoryHolder(block))
+        {
+            return BlockRule.CONTAINER;
+        }
+
+        return rule;
+    }
+
+    //gets what right clicking a block with an item requires
+    ItemRule getItemRule(Material materialInHand)
+    {
+        return this.itemRules[materialInHand.ordinal()];
+    }
+
+    private boolean isInventoryHolder(Block block)
+    {
+        int index = block.getType().ordinal();
+        byte holder = this.inventoryHolders[index];
+        if (holder == HOLDER_UNKNOWN)
+        {
+            holder = block.getState() instanceof InventoryHolder ? HOLDER_YES : HOLDER_NO;
+            this.inventoryHolders[index] = holder;
+        }
+
+        return holder == HOLDER_YES;
+    }
+}
@@ -0,0 +1,832 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+//stores claims in an append-only log instead of one file per claim, player data is still kept in files
+//every save or delete appends one checksummed record to the current segment file.  once the segments grow large enough,
+//all claims are written to a binary snapshot and the segments are discarded.  loading reads the snapshot, then replays
+//any segments written after it.
+//the latest record of every claim is kept in memory, so compaction on the claim saver never reads claims the main
+//thread may be changing.  writing happens under the data store's claim write lock rather than its own lock.
+//the first time it's used, the claims in the ClaimData folder are moved into the log.  when it's turned off again, or a
+//database is configured, the log is exported back to claim files first (see exportClaimData())
+class LogFileDataStore extends FlatFileDataStore
+{
+    private final static String claimLogFolderPath = dataLayerFolderPath + File.separator + "ClaimLog";
+    private final static String snapshotFilePath = claimLogFolderPath + File.separator + "claims.snapshot";
+    private final static String migratedClaimDataFolderPath = claimDataFolderPath + File.separator + "migrated";
+
+    private final static int SNAPSHOT_MAGIC = 0x47504353;  //"GPCS"
+    private final static int SNAPSHOT_VERSION = 1;
+
+    private final static byte RECORD_SAVE = 1;
+    private final static byte RECORD_DELETE = 2;
+
+    //records larger than this can't be real, so a length this large means the segment is damaged
+    private final static int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    //once the segments hold this much, they're compacted into a new snapshot
+    private final static long COMPACTION_THRESHOLD_BYTES = 8 * 1024 * 1024;
+
+    //FlatFileDataStore's constructor loads the claims before this class's field initializers would run,
+    //so these are deliberately left without initializers and set up in loadClaims()
+
+    //the segment being appended to, and its number
+    private DataOutputStream segmentStream;
+    private long segmentNumber;
+
+    //bytes appended to segments since the last snapshot
+    private long segmentBytes;
+
+    //claim ID -> latest save record, for every stored claim including those in worlds which aren't loaded
+    //compaction writes these to the snapshot
+    private Map<Long, byte[]> claimRecords;
+
+    LogFileDataStore() throws Exception
+    {
+        super();
+    }
+
+    @Override
+    void loadClaims() throws Exception
+    {
+        this.claimRecords = new LinkedHashMap<>();
+
+        File claimLogFolder = new File(claimLogFolderPath);
+        claimLogFolder.mkdirs();
+
+        //every log starts with the snapshot written by the migration, so without one, the migration never finished
+        File snapshotFile = new File(snapshotFilePath);
+        TreeMap<Long, File> segments = listSegments();
+        if (!snapshotFile.exists())
+        {
+            for (File segment : segments.values())
+            {
+                segment.delete();
+            }
+            this.migrateClaimData();
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+
+        //the latest record for each claim, in the order claims first appeared
+        LinkedHashMap<Long, byte[]> records = new LinkedHashMap<>();
+        long firstSegment = 0;
+        if (snapshotFile.exists())
+        {
+            firstSegment = readSnapshot(snapshotFile, records);
+        }
+        int snapshotRecords = records.size();
+
+        //replay the segments written since the snapshot, and drop any the snapshot already covers
+        int replayedRecords = 0;
+        for (Map.Entry<Long, File> segment : segments.entrySet())
+        {
+            if (segment.getKey() < firstSegment)
+            {
+                segment.getValue().delete();
+                continue;
+            }
+
+            replayedRecords += replaySegment(segment.getValue(), records);
+        }
+        long read = System.currentTimeMillis();
+
+        //never append to an old segment, its last record may be incomplete
+        //the new segment is opened before the claims are added, so anything saved while they're added is kept
+        this.openSegment(Math.max(firstSegment - 1, segments.isEmpty() ? 0 : segments.lastKey()) + 1);
+
+        this.addClaims(records);
+        long added = System.currentTimeMillis();
+
+        GriefPrevention.AddLogEntry("Loaded " + records.size() + " claims from the claim log in " + (added - start) + "ms (" + snapshotRecords + " snapshot records and " +
+                replayedRecords + " log records read in " + (read - start) + "ms).");
+
+        if (replayedRecords > 0)
+        {
+            //so the next startup only needs to read the snapshot
+            this.compact();
+        }
+        else
+        {
+            for (Map.Entry<Long, File> segment : segments.tailMap(firstSegment).entrySet())
+            {
+                segment.getValue().delete();
+            }
+        }
+    }
+
+    //moves the claims from the ClaimData folder into a new log
+    private void migrateClaimData() throws Exception
+    {
+        this.openSegment(1);
+        super.loadClaims();
+
+        for (Claim claim : this.claims)
+        {
+            this.assignClaimID(claim);
+            this.claimRecords.put(claim.id, getSaveRecord(claim));
+            for (Claim child : claim.children)
+            {
+                this.assignClaimID(child);
+                this.claimRecords.put(child.id, getSaveRecord(child));
+            }
+        }
+
+        //claims which didn't load (because their world is missing, for example) are read into records as they are,
+        //so they're kept in the log like any other claim and load once their world does
+        //files which can't be read at all stay where they are
+        ArrayList<File> migratedFiles = new ArrayList<>();
+        int unloaded = 0;
+        int notMigrated = 0;
+        File[] files = new File(claimDataFolderPath).listFiles();
+        for (File file : files == null ? new File[0] : files)
+        {
+            String name = file.getName();
+            if (!file.isFile() || !name.endsWith(".yml")) continue;
+
+            try
+            {
+                long claimID = Long.parseLong(name.substring(0, name.length() - 4));
+                if (this.getClaim(claimID) == null)
+                {
+                    String input = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                    this.claimRecords.put(claimID, getSaveRecord(input, claimID, file.lastModified()));
+                    unloaded++;
+                }
+                migratedFiles.add(file);
+            }
+            catch (Exception e)
+            {
+                GriefPrevention.AddLogEntry("Unable to move claim file " + name + " into the claim log: " + e.getMessage(), CustomLogEntryTypes.Exception);
+                notMigrated++;
+            }
+        }
+
+        //the snapshot must be in place before any claim file is moved
+        this.compact();
+
+        //the claim files are kept, out of the way, as a backup.  switching back exports the log instead, see exportClaimData()
+        File migratedFolder = new File(migratedClaimDataFolderPath);
+        for (File file : migratedFiles)
+        {
+            migratedFolder.mkdirs();
+            Files.move(file.toPath(), new File(migratedFolder, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (!migratedFiles.isEmpty())
+        {
+            GriefPrevention.AddLogEntry("Moved " + migratedFiles.size() + " claim files into the claim log, " + unloaded + " of them for claims in worlds which aren't loaded.  The original files are in " + migratedFolder.getPath() + ".");
+        }
+        if (notMigrated > 0)
+        {
+            GriefPrevention.AddLogEntry(notMigrated + " claim files could not be read, so they were left in " + claimDataFolderPath + ".");
+        }
+    }
+
+    //whether claims are stored in a claim log, rather than in claim files
+    //a log without a snapshot is from a migration which never finished, so the claim files are still in place
+    static boolean hasClaimLog()
+    {
+        return new File(snapshotFilePath).exists();
+    }
+
+    //writes every claim in the log back to a claim file, then moves the log out of the way
+    //claims in worlds which aren't loaded are exported too, since the claim files don't need their world
+    static void exportClaimData() throws IOException
+    {
+        LinkedHashMap<Long, byte[]> records = new LinkedHashMap<>();
+        long firstSegment = readSnapshot(new File(snapshotFilePath), records);
+        for (File segment : listSegments().tailMap(firstSegment).values())
+        {
+            replaySegment(segment, records);
+        }
+
+        File claimDataFolder = new File(claimDataFolderPath);
+        claimDataFolder.mkdirs();
+        for (Map.Entry<Long, byte[]> entry : records.entrySet())
+        {
+            ArrayList<Long> out_modifiedDate = new ArrayList<>();  //hacky output parameter
+            String yaml = getYaml(entry.getValue(), out_modifiedDate);
+
+            File claimFile = new File(claimDataFolder, entry.getKey() + ".yml");
+            Files.write(claimFile.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+            if (out_modifiedDate.get(0) > 0) claimFile.setLastModified(out_modifiedDate.get(0));
+        }
+
+        //every claim is in a file now, so rename the log so it isn't exported again
+        int i = 0;
+        File backupFolder;
+        do
+        {
+            backupFolder = new File(claimLogFolderPath + ".exported" + (i > 0 ? String.valueOf(i) : ""));
+            i++;
+        } while (backupFolder.exists());
+        Files.move(new File(claimLogFolderPath).toPath(), backupFolder.toPath());
+
+        GriefPrevention.AddLogEntry("Exported " + records.size() + " claims from the claim log to claim files in " + claimDataFolderPath + ".  The claim log was moved to " + backupFolder.getPath() + ".");
+    }
+
+    //segment files by number
+    private static TreeMap<Long, File> listSegments()
+    {
+        TreeMap<Long, File> segments = new TreeMap<>();
+        File[] files = new File(claimLogFolderPath).listFiles();
+        if (files == null) return segments;
+
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (!file.isFile() || !name.startsWith("segment-") || !name.endsWith(".log")) continue;
+
+            try
+            {
+                segments.put(Long.parseLong(name.substring(8, name.length() - 4)), file);
+            }
+            catch (NumberFormatException ignored) { }
+        }
+
+        return segments;
+    }
+
+    private static File getSegmentFile(long number)
+    {
+        return new File(claimLogFolderPath + File.separator + "segment-" + number + ".log");
+    }
+
+    //reads every record in the snapshot, returning the number of the first segment written after it
+    private static long readSnapshot(File snapshotFile, Map<Long, byte[]> records) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        try (DataInputStream input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)), crc)))
+        {
+            if (input.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a claim snapshot: " + snapshotFile.getPath());
+            int version = input.readInt();
+            if (version != SNAPSHOT_VERSION) throw new IOException("Unsupported claim snapshot version " + version + ": " + snapshotFile.getPath());
+
+            long firstSegment = input.readLong();
+            int count = input.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                byte[] record = new byte[input.readInt()];
+                input.readFully(record);
+                records.put(getRecordClaimID(record), record);
+            }
+
+            //unlike a segment, a snapshot is written in full before it replaces the last one, so any damage is a real problem
+            long expected = crc.getValue();
+            if (input.readLong() != expected)
+            {
+                throw new IOException("Claim snapshot is damaged (checksum mismatch): " + snapshotFile.getPath());
+            }
+
+            return firstSegment;
+        }
+    }
+
+    //applies every intact record in a segment, returning how many there were
+    private static int replaySegment(File segmentFile, Map<Long, byte[]> records) throws IOException
+    {
+        int replayed = 0;
+        long offset = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(segmentFile))))
+        {
+            while (true)
+            {
+                int length;
+                try
+                {
+                    length = input.readInt();
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+
+                //a record cut short or damaged, most likely by a crash while it was written, ends the segment
+                byte[] record;
+                long checksum;
+                try
+                {
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) throw new IOException("bad record length " + length);
+                    checksum = input.readLong();
+                    record = new byte[length];
+                    input.readFully(record);
+                }
+                catch (IOException e)
+                {
+                    GriefPrevention.AddLogEntry("Claim log " + segmentFile.getName() + " ends with an incomplete record at byte " + offset + ", ignoring the rest of it.");
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if (crc.getValue() != checksum)
+                {
+                    GriefPrevention.AddLogEntry("Claim log " + segmentFile.getName() + " has a damaged record at byte " + offset + ", ignoring the rest of it.");
+                    break;
+                }
+
+                long claimID = getRecordClaimID(record);
+                if (record[0] == RECORD_DELETE)
+                {
+                    records.remove(claimID);
+                }
+                else
+                {
+                    records.put(claimID, record);
+                }
+
+                replayed++;
+                offset += 12 + length;
+            }
+        }
+
+        return replayed;
+    }
+
+    //turns the surviving records into claims, top level claims first so subdivisions can find their parents
+    private void addClaims(Map<Long, byte[]> records)
+    {
+        List<World> validWorlds = Bukkit.getServer().getWorlds();
+        ArrayList<Claim> subdivisions = new ArrayList<>();
+        ArrayList<Long> parentIDs = new ArrayList<>();
+        for (Map.Entry<Long, byte[]> entry : records.entrySet())
+        {
+            try
+            {
+                ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
+                Claim claim = readClaim(entry.getValue(), out_parentID, validWorlds);
+                if (claim == null)
+                {
+                    GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + entry.getKey() + ") because its world isn't loaded (yet?).  It will be kept in the claim log.");
+                    this.claimRecords.put(entry.getKey(), entry.getValue());
+                }
+                else if (out_parentID.get(0) == -1)
+                {
+                    this.addClaim(claim, false);
+                    this.claimRecords.put(entry.getKey(), entry.getValue());
+                }
+                else
+                {
+                    subdivisions.add(claim);
+                    parentIDs.add(out_parentID.get(0));
+                }
+            }
+            catch (IOException e)
+            {
+                GriefPrevention.AddLogEntry("Failed to read claim " + entry.getKey() + " from the claim log: " + e.getMessage(), CustomLogEntryTypes.Exception);
+            }
+        }
+
+        //parents are looked up by ID, so make sure the top level claims are visible first
+        this.flushClaimIndexBatch();
+        for (int i = 0; i < subdivisions.size(); i++)
+        {
+            Claim subdivision = subdivisions.get(i);
+            Claim parent = this.getClaim(parentIDs.get(i));
+            if (parent != null)
+            {
+                subdivision.parent = parent;
+                this.addClaim(subdivision, false);
+                this.claimRecords.put(subdivision.id, records.get(subdivision.id));
+            }
+            else if (this.claimRecords.containsKey(parentIDs.get(i)))
+            {
+                //its parent is in a world which isn't loaded
+                this.claimRecords.put(subdivision.id, records.get(subdivision.id));
+            }
+        }
+    }
+
+    private static long getRecordClaimID(byte[] record)
+    {
+        long id = 0;
+        for (int i = 1; i < 9; i++)
+        {
+            id = (id << 8) | (record[i] & 0xFF);
+        }
+        return id;
+    }
+
+    //a save record holds everything the claim's YAML file would
+    private static byte[] getSaveRecord(Claim claim) throws IOException
+    {
+        Location lesser = claim.getLesserBoundaryCorner();
+        Location greater = claim.getGreaterBoundaryCorner();
+        int[] corners = { lesser.getBlockX(), lesser.getBlockY(), lesser.getBlockZ(), greater.getBlockX(), greater.getBlockY(), greater.getBlockZ() };
+
+        ArrayList<String> builders = new ArrayList<>();
+        ArrayList<String> containers = new ArrayList<>();
+        ArrayList<String> accessors = new ArrayList<>();
+        ArrayList<String> managers = new ArrayList<>();
+        claim.getPermissions(builders, containers, accessors, managers);
+
+        return getSaveRecord(claim.id, claim.parent == null ? -1 : claim.parent.id, claim.ownerID, lesser.getWorld().getName(), corners,
+                claim.getSubclaimRestrictions(), claim.modifiedDate == null ? 0 : claim.modifiedDate.getTime(), builders, containers, accessors, managers);
+    }
+
+    //builds a save record from a claim file without looking up its world, so claims in worlds which aren't loaded can be kept
+    private static byte[] getSaveRecord(String input, long claimID, long modifiedDate) throws Exception
+    {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(input);
+
+        String[] lesser = splitLocation(yaml.getString("Lesser Boundary Corner"));
+        String[] greater = splitLocation(yaml.getString("Greater Boundary Corner"));
+        int[] corners = new int[6];
+        for (int i = 0; i < 3; i++)
+        {
+            corners[i] = Integer.parseInt(lesser[i + 1]);
+            corners[i + 3] = Integer.parseInt(greater[i + 1]);
+        }
+
+        //like loading the file, an owner which isn't a valid UUID makes an administrative claim
+        UUID ownerID = null;
+        String ownerIdentifier = yaml.getString("Owner", "");
+        if (!ownerIdentifier.isEmpty())
+        {
+            try
+            {
+                ownerID = UUID.fromString(ownerIdentifier);
+            }
+            catch (IllegalArgumentException ignored) { }
+        }
+
+        return getSaveRecord(claimID, yaml.getLong("Parent Claim ID", -1L), ownerID, lesser[0], corners, yaml.getBoolean("inheritNothing"), modifiedDate,
+                yaml.getStringList("Builders"), yaml.getStringList("Containers"), yaml.getStringList("Accessors"), yaml.getStringList("Managers"));
+    }
+
+    //splits a location string (see DataStore.locationToString()) into the world name and coordinates
+    private static String[] splitLocation(String location) throws IOException
+    {
+        String[] elements = location == null ? new String[0] : location.split(";");
+        if (elements.length < 4)
+        {
+            throw new IOException("Expected four distinct parts to the location string: \"" + location + "\"");
+        }
+
+        return elements;
+    }
+
+    //corners are the lesser X, Y and Z, then the greater X, Y and Z
+    private static byte[] getSaveRecord(long claimID, long parentID, UUID ownerID, String worldName, int[] corners, boolean inheritNothing, long modifiedDate,
+                                        List<String> builders, List<String> containers, List<String> accessors, List<String> managers) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        output.writeByte(RECORD_SAVE);
+        output.writeLong(claimID);
+        output.writeLong(parentID);
+
+        output.writeBoolean(ownerID != null);
+        if (ownerID != null)
+        {
+            output.writeLong(ownerID.getMostSignificantBits());
+            output.writeLong(ownerID.getLeastSignificantBits());
+        }
+
+        output.writeUTF(worldName);
+        for (int corner : corners)
+        {
+            output.writeInt(corner);
+        }
+
+        output.writeBoolean(inheritNothing);
+        output.writeLong(modifiedDate);
+
+        writeList(output, builders);
+        writeList(output, containers);
+        writeList(output, accessors);
+        writeList(output, managers);
+
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    //the claim file for a save record, see FlatFileDataStore.getYamlForClaim()
+    //the world isn't looked up, so claims in worlds which aren't loaded can be exported
+    private static String getYaml(byte[] record, ArrayList<Long> out_modifiedDate) throws IOException
+    {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        input.readByte();
+        input.readLong();
+        long parentID = input.readLong();
+
+        UUID ownerID = input.readBoolean() ? new UUID(input.readLong(), input.readLong()) : null;
+
+        String worldName = input.readUTF();
+        String lesserBoundaryCorner = worldName + ";" + input.readInt() + ";" + input.readInt() + ";" + input.readInt();
+        String greaterBoundaryCorner = worldName + ";" + input.readInt() + ";" + input.readInt() + ";" + input.readInt();
+        boolean inheritNothing = input.readBoolean();
+        out_modifiedDate.add(input.readLong());
+
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Lesser Boundary Corner", lesserBoundaryCorner);
+        yaml.set("Greater Boundary Corner", greaterBoundaryCorner);
+        yaml.set("Owner", ownerID == null ? "" : ownerID.toString());
+        yaml.set("Builders", readList(input));
+        yaml.set("Containers", readList(input));
+        yaml.set("Accessors", readList(input));
+        yaml.set("Managers", readList(input));
+        yaml.set("Parent Claim ID", parentID);
+        yaml.set("inheritNothing", inheritNothing);
+
+        return yaml.saveToString();
+    }
+
+    private static byte[] getDeleteRecord(long claimID) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RECORD_DELETE);
+        output.writeLong(claimID);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeList(DataOutputStream output, List<String> list) throws IOException
+    {
+        output.writeInt(list.size());
+        for (String entry : list)
+        {
+            output.writeUTF(entry);
+        }
+    }
+
+    private static List<String> readList(DataInputStream input) throws IOException
+    {
+        int size = input.readInt();
+        ArrayList<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            list.add(input.readUTF());
+        }
+        return list;
+    }
+
+    //builds a claim from a save record, or returns null if its world isn't loaded
+    private static Claim readClaim(byte[] record, ArrayList<Long> out_parentID, List<World> validWorlds) throws IOException
+    {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        input.readByte();
+        long claimID = input.readLong();
+        out_parentID.add(input.readLong());
+
+        UUID ownerID = input.readBoolean() ? new UUID(input.readLong(), input.readLong()) : null;
+
+        String worldName = input.readUTF();
+        World world = null;
+        for (World w : validWorlds)
+        {
+            if (w.getName().equalsIgnoreCase(worldName))
+            {
+                world = w;
+                break;
+            }
+        }
+        if (world == null) return null;
+
+        Location lesserBoundaryCorner = new Location(world, input.readInt(), input.readInt(), input.readInt());
+        Location greaterBoundaryCorner = new Location(world, input.readInt(), input.readInt(), input.readInt());
+        boolean inheritNothing = input.readBoolean();
+        long modifiedDate = input.readLong();
+
+        List<String> builders = readList(input);
+        List<String> containers = readList(input);
+        List<String> accessors = readList(input);
+        List<String> managers = readList(input);
+
+        Claim claim = new Claim(lesserBoundaryCorner, greaterBoundaryCorner, ownerID, builders, containers, accessors, managers, inheritNothing, claimID);
+        claim.modifiedDate = new Date(modifiedDate);
+        return claim;
+    }
+
+    private void openSegment(long number) throws IOException
+    {
+        this.segmentNumber = number;
+        this.segmentStream = new DataOutputStream(new FileOutputStream(getSegmentFile(number), true));
+    }
+
+    private void closeSegment()
+    {
+        if (this.segmentStream == null) return;
+
+        try
+        {
+            this.segmentStream.close();
+        }
+        catch (IOException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to close claim log segment " + this.segmentNumber + ": " + e.getMessage(), CustomLogEntryTypes.Exception);
+        }
+        this.segmentStream = null;
+    }
+
+    //appends records to the current segment in one write, compacting afterward if the segments have grown large
+    private void append(List<byte[]> records) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (byte[] record : records)
+        {
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            output.writeInt(record.length);
+            output.writeLong(crc.getValue());
+            output.write(record);
+        }
+        output.flush();
+
+        //a failed write is tried once more in a new segment
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                //starting the current segment failed last time, or the last write to it failed, so start it now
+                if (this.segmentStream == null)
+                {
+                    this.openSegment(this.segmentNumber);
+                }
+
+                bytes.writeTo(this.segmentStream);
+                this.segmentStream.flush();
+                break;
+            }
+            catch (IOException e)
+            {
+                //part of the write may have landed, and loading stops reading a segment at its first damaged record,
+                //so nothing more can go in this one.  the next write starts a new segment, which is replayed on its own
+                this.closeSegment();
+                this.segmentNumber++;
+                if (attempt == 2) throw e;
+            }
+        }
+        this.segmentBytes += bytes.size();
+
+        if (this.segmentBytes >= COMPACTION_THRESHOLD_BYTES)
+        {
+            try
+            {
+                this.compact();
+            }
+            catch (IOException e)
+            {
+                //the records are safe in the segments, so carry on and try again once they've grown some more
+                this.segmentBytes = 0;
+                GriefPrevention.AddLogEntry("Unable to compact the claim log: " + e.getMessage(), CustomLogEntryTypes.Exception);
+            }
+        }
+    }
+
+    //writes every claim to a new snapshot and starts a new segment, then discards the old segments
+    //a crash or error part way through leaves either the old snapshot and segments or the new snapshot, both complete,
+    //and the current segment stays open until the new snapshot is in place
+    private void compact() throws IOException
+    {
+        long start = System.currentTimeMillis();
+        long nextSegment = this.segmentNumber + 1;
+
+        ArrayList<byte[]> records = new ArrayList<>(this.claimRecords.values());
+
+        File snapshotFile = new File(snapshotFilePath);
+        File tempFile = new File(snapshotFilePath + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileStream = new FileOutputStream(tempFile))
+        {
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileStream), crc));
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeLong(nextSegment);
+            output.writeInt(records.size());
+            for (byte[] record : records)
+            {
+                output.writeInt(record.length);
+                output.write(record);
+            }
+            output.flush();
+
+            //the checksum covers everything before it, so it's written past the checked stream
+            DataOutputStream trailer = new DataOutputStream(fileStream);
+            trailer.writeLong(crc.getValue());
+            trailer.flush();
+            fileStream.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        //the new snapshot covers everything in the old segments, and loading skips them, so nothing more may go in them
+        this.closeSegment();
+        for (File segment : listSegments().headMap(nextSegment).values())
+        {
+            segment.delete();
+        }
+
+        this.segmentBytes = 0;
+        this.openSegment(nextSegment);
+        GriefPrevention.AddLogEntry("Compacted the claim log into a snapshot of " + records.size() + " claims in " + (System.currentTimeMillis() - start) + "ms.", CustomLogEntryTypes.Debug, true);
+    }
+
+    @Override
+    void writeClaimToStorage(Claim claim)
+    {
+        this.writeClaimsToStorage(List.of(claim));
+    }
+
+    @Override
+    void writeClaimsToStorage(Collection<Claim> claims)
+    {
+        try
+        {
+            ArrayList<byte[]> records = new ArrayList<>(claims.size());
+            for (Claim claim : claims)
+            {
+                byte[] record = getSaveRecord(claim);
+                this.claimRecords.put(claim.id, record);
+                records.add(record);
+            }
+            this.append(records);
+        }
+        catch (IOException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to save " + claims.size() + " claims to the claim log.  Details:", CustomLogEntryTypes.Exception);
+            GriefPrevention.AddLogEntry(e.getMessage(), CustomLogEntryTypes.Exception);
+        }
+    }
+
+    @Override
+    void deleteClaimFromSecondaryStorage(Claim claim)
+    {
+        //claims which were never saved have nothing to delete
+        if (claim.id == null) return;
+
+        this.claimRecords.remove(claim.id);
+        try
+        {
+            this.append(List.of(getDeleteRecord(claim.id)));
+        }
+        catch (IOException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to delete claim " + claim.id + " from the claim log.  Details:", CustomLogEntryTypes.Exception);
+            GriefPrevention.AddLogEntry(e.getMessage(), CustomLogEntryTypes.Exception);
+        }
+    }
+
+    @Override
+    synchronized void close()
+    {
+        synchronized (this.claimWriteLock)
+        {
+            this.closeSegment();
+        }
+        super.close();
+    }
+}
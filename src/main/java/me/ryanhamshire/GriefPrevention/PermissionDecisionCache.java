@@ -0,0 +1,113 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import me.ryanhamshire.GriefPrevention.util.LongHashMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//remembers one player's recent claim permission decisions, so repeated checks in the same claim skip resolving trust
+//a decision is only reused while the trust of its claim and the claim's parent is unchanged (see Claim.getTrustVersion())
+//and until it expires, which limits how long a change to the player's server permissions can go unnoticed
+//only used from the main thread
+final class PermissionDecisionCache
+{
+    //players wandering through many claims start over rather than growing the cache without bound
+    private static final int MAX_ENTRIES = 256;
+
+    //shared by every player's cache
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private static final class Decision
+    {
+        final int trustVersion;
+        final int parentTrustVersion;
+        final long expires;
+        final boolean allowed;
+
+        Decision(int trustVersion, int parentTrustVersion, long expires, boolean allowed)
+        {
+            this.trustVersion = trustVersion;
+            this.parentTrustVersion = parentTrustVersion;
+            this.expires = expires;
+            this.allowed = allowed;
+        }
+    }
+
+    //claim ID and permission -> decision
+    //claims without an ID yet (legacy subdivisions until the schema upgrade saves them) aren't cached
+    private final LongHashMap<Decision> decisions = new LongHashMap<>();
+
+    private static long getKey(Claim claim, ClaimPermission permission)
+    {
+        return claim.id * 8 + permission.ordinal();
+    }
+
+    private static int getParentTrustVersion(Claim claim)
+    {
+        return claim.parent == null ? 0 : claim.parent.getTrustVersion();
+    }
+
+    //gets a still valid decision, or null if there isn't one
+    Boolean get(Claim claim, ClaimPermission permission, long now)
+    {
+        if (claim.id == null) return null;
+
+        Decision decision = this.decisions.get(getKey(claim, permission));
+        if (decision == null || decision.expires <= now
+                || decision.trustVersion != claim.getTrustVersion()
+                || decision.parentTrustVersion != getParentTrustVersion(claim))
+        {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return decision.allowed;
+    }
+
+    //remembers a decision for the given number of milliseconds
+    void put(Claim claim, ClaimPermission permission, boolean allowed, long now, long lifetime)
+    {
+        if (claim.id == null) return;
+        if (this.decisions.size() >= MAX_ENTRIES) this.decisions.clear();
+
+        this.decisions.put(getKey(claim, permission),
+                new Decision(claim.getTrustVersion(), getParentTrustVersion(claim), now + lifetime, allowed));
+    }
+
+    //forgets every decision, for changes which affect the player in every claim
+    void clear()
+    {
+        this.decisions.clear();
+    }
+
+    //number of checks answered from a cache since the server started
+    static long getHits()
+    {
+        return hits.sum();
+    }
+
+    //number of checks which had to be resolved since the server started
+    static long getMisses()
+    {
+        return misses.sum();
+    }
+}
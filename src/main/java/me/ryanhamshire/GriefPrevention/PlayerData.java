@@ -18,11 +18,14 @@
 
 package me.ryanhamshire.GriefPrevention;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
 
 import java.net.InetAddress;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.UUID;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,6 +39,10 @@ public class PlayerData
     //the player's claims
     private Vector<Claim> claims = null;
 
+    //total area of the player's claims, adjusted as claims are added, removed and resized so it never needs summing
+    //only meaningful once the claims are loaded, see getClaims()
+    private volatile int usedClaimBlocks = 0;
+
     //how many claim blocks the player has earned via play time
     private Integer accruedClaimBlocks = null;
 
@@ -86,6 +93,30 @@ public class PlayerData
     //ignore claims mode
     public boolean ignoreClaims = false;
 
+    //recent claim permission decisions for this player
+    final PermissionDecisionCache permissionDecisions = new PermissionDecisionCache();
+
+    //bonus blocks from this player's groups as last calculated, see DataStore.getGroupBonusBlocks()
+    private volatile CachedGroupBonusBlocks cachedGroupBonusBlocks = null;
+
+    private static final class CachedGroupBonusBlocks
+    {
+        final int bonusBlocks;
+        final int version;
+        final long expires;
+
+        CachedGroupBonusBlocks(int bonusBlocks, int version, long expires)
+        {
+            this.bonusBlocks = bonusBlocks;
+            this.version = version;
+            this.expires = expires;
+        }
+    }
+
+    //whether this player has the permission nodes named in [permission.node] claim trust, see hasPermissionNode()
+    private final HashMap<String, Boolean> permissionNodes = new HashMap<>();
+    private long permissionNodesExpire = 0;
+
     //the last claim this player was in, that we know of
     public Claim lastClaim = null;
 
@@ -131,6 +162,51 @@ public class PlayerData
     //profanity warning, once per play session
     boolean profanityWarned = false;
 
+    //whether this player has a permission node granted claim trust, remembering the answer for a while
+    //there's no notice when a player's permissions change, so answers are forgotten after the permission cache lifetime
+    boolean hasPermissionNode(Player player, String node)
+    {
+        //only the main thread uses the remembered answers
+        long lifetime = GriefPrevention.instance.config_claims_permissionCacheMillis;
+        if (lifetime <= 0 || !Bukkit.isPrimaryThread()) return player.hasPermission(node);
+
+        long now = System.currentTimeMillis();
+        if (now >= this.permissionNodesExpire)
+        {
+            this.permissionNodes.clear();
+            this.permissionNodesExpire = now + lifetime;
+        }
+
+        Boolean hasPermission = this.permissionNodes.get(node);
+        if (hasPermission == null)
+        {
+            hasPermission = player.hasPermission(node);
+            this.permissionNodes.put(node, hasPermission);
+        }
+
+        return hasPermission;
+    }
+
+    //gets the remembered group bonus blocks, or null if they need to be recalculated
+    Integer getCachedGroupBonusBlocks(int version, long now)
+    {
+        CachedGroupBonusBlocks cached = this.cachedGroupBonusBlocks;
+        if (cached == null || cached.version != version || cached.expires <= now) return null;
+
+        return cached.bonusBlocks;
+    }
+
+    void setCachedGroupBonusBlocks(int bonusBlocks, int version, long expires)
+    {
+        this.cachedGroupBonusBlocks = new CachedGroupBonusBlocks(bonusBlocks, version, expires);
+    }
+
+    //forgets the remembered group bonus blocks, for when this player's permissions may have changed
+    void invalidateGroupBonusBlocks()
+    {
+        this.cachedGroupBonusBlocks = null;
+    }
+
     //whether or not this player is "in" pvp combat
     public boolean inPvpCombat()
     {
@@ -152,14 +228,72 @@ public class PlayerData
     //the number of claim blocks a player has available for claiming land
     public int getRemainingClaimBlocks()
     {
-        int remainingBlocks = this.getAccruedClaimBlocks() + this.getBonusClaimBlocks() + GriefPrevention.instance.dataStore.getGroupBonusBlocks(this.playerID);
-        for (int i = 0; i < this.getClaims().size(); i++)
+        //loads the claims and the used area the first time
+        if (this.claims == null) this.getClaims();
+
+        return this.getAccruedClaimBlocks() + this.getBonusClaimBlocks() + GriefPrevention.instance.dataStore.getGroupBonusBlocks(this.playerID) - this.usedClaimBlocks;
+    }
+
+    //the total area of this player's claims
+    public int getUsedClaimBlocks()
+    {
+        if (this.claims == null) this.getClaims();
+
+        return this.usedClaimBlocks;
+    }
+
+    //adds a claim to this player's claims, if it isn't already there
+    synchronized void addClaim(Claim claim)
+    {
+        if (this.getClaims().contains(claim)) return;
+
+        this.claims.add(claim);
+        this.usedClaimBlocks += claim.getArea();
+    }
+
+    //removes a claim from this player's claims
+    synchronized void removeClaim(Claim claim)
+    {
+        Vector<Claim> claims = this.getClaims();
+        for (int i = 0; i < claims.size(); i++)
+        {
+            Claim other = claims.get(i);
+            if (other == claim || (other.id != null && other.id.equals(claim.id)))
+            {
+                claims.remove(i);
+                this.usedClaimBlocks -= other.getArea();
+                return;
+            }
+        }
+    }
+
+    //records a change in the area of one of this player's claims
+    synchronized void adjustUsedClaimBlocks(int change)
+    {
+        if (this.claims != null) this.usedClaimBlocks += change;
+    }
+
+    //compares the used area with the real total of this player's claims, correcting and reporting any difference
+    //claims added or removed without going through addClaim() and removeClaim() cause differences
+    //returns the difference, zero if the totals agreed
+    synchronized int auditUsedClaimBlocks()
+    {
+        if (this.claims == null) return 0;
+
+        int totalClaimsArea = 0;
+        for (Claim claim : this.getClaims())
         {
-            Claim claim = this.getClaims().get(i);
-            remainingBlocks -= claim.getArea();
+            totalClaimsArea += claim.getArea();
         }
 
-        return remainingBlocks;
+        int drift = this.usedClaimBlocks - totalClaimsArea;
+        if (drift != 0)
+        {
+            GriefPrevention.AddLogEntry("Used claim blocks for " + this.playerID + " were off by " + drift + " (recorded " + this.usedClaimBlocks + ", actual " + totalClaimsArea + ").  Corrected.", CustomLogEntryTypes.Debug, true);
+            this.usedClaimBlocks = totalClaimsArea;
+        }
+
+        return drift;
     }
 
     //don't load data from secondary storage until it's needed
@@ -252,20 +386,14 @@ public class PlayerData
             //find all the claims belonging to this player and note them for future reference
             DataStore dataStore = GriefPrevention.instance.dataStore;
             int totalClaimsArea = 0;
-            for (int i = 0; i < dataStore.claims.size(); i++)
+            for (Claim claim : dataStore.getClaimsByOwner(this.playerID))
             {
-                Claim claim = dataStore.claims.get(i);
-                if (!claim.inDataStore)
-                {
-                    dataStore.claims.remove(i--);
-                    continue;
-                }
-                if (playerID.equals(claim.ownerID))
-                {
-                    this.claims.add(claim);
-                    totalClaimsArea += claim.getArea();
-                }
+                if (!claim.inDataStore) continue;
+
+                this.claims.add(claim);
+                totalClaimsArea += claim.getArea();
             }
+            this.usedClaimBlocks = totalClaimsArea;
 
             //ensure player has claim blocks for his claims, and at least the minimum accrued
             this.loadDataFromSecondaryStorage();
@@ -317,7 +445,7 @@ public class PlayerData
         {
             if (!claims.get(i).inDataStore)
             {
-                claims.remove(i--);
+                this.usedClaimBlocks -= claims.remove(i--).getArea();
             }
         }
 
@@ -28,7 +28,6 @@ import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.Tag;
 import org.bukkit.World;
 import org.bukkit.World.Environment;
 import org.bukkit.block.Block;
@@ -684,6 +683,9 @@ class PlayerEventHandler implements Listener
         long now = nowDate.getTime();
         PlayerData playerData = this.dataStore.getPlayerData(playerID);
         playerData.lastSpawn = now;
+
+        //permissions are recalculated on join, so group bonus blocks may have changed
+        playerData.invalidateGroupBonusBlocks();
         this.lastLoginThisServerSessionMap.put(playerID, nowDate);
 
         //if newish, prevent chat until he's moved a bit to prove he's not a bot
@@ -699,7 +701,7 @@ class PlayerEventHandler implements Listener
             instance.checkPvpProtectionNeeded(player);
 
             //if in survival claims mode, send a message about the claim basics video (except for admins - assumed experts)
-            if (instance.config_claims_worldModes.get(player.getWorld()) == ClaimsMode.Survival && !player.hasPermission("griefprevention.adminclaims") && this.dataStore.claims.size() > 10)
+            if (instance.getWorldRules(player.getWorld()).claimsMode == ClaimsMode.Survival && !player.hasPermission("griefprevention.adminclaims") && this.dataStore.claims.size() > 10)
             {
                 WelcomeTask task = new WelcomeTask(player);
                 Bukkit.getScheduler().scheduleSyncDelayedTask(instance, task, instance.config_claims_manualDeliveryDelaySeconds * 20L);
@@ -978,6 +980,9 @@ class PlayerEventHandler implements Listener
                 player.setHealth(0);  //might already be zero from above, this avoids a double death message
         }
 
+        //check the used claim blocks kept during the session against the player's claims, to catch any bookkeeping gaps
+        playerData.auditUsedClaimBlocks();
+
         //drop data about this player
         this.dataStore.clearCachedPlayerData(playerID);
 
@@ -1106,7 +1111,7 @@ class PlayerEventHandler implements Listener
         //FEATURE: prevent teleport abuse to win sieges
 
         //these rules only apply to siege worlds only
-        if (!instance.config_siege_enabledWorlds.contains(player.getWorld())) return;
+        if (!instance.siegeEnabledForWorld(player.getWorld())) return;
 
         //these rules do not apply to admins
         if (player.hasPermission("griefprevention.siegeteleport")) return;
@@ -1513,7 +1518,8 @@ class PlayerEventHandler implements Listener
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onPlayerBucketEmpty(PlayerBucketEmptyEvent bucketEvent)
     {
-        if (!instance.claimsEnabledForWorld(bucketEvent.getBlockClicked().getWorld())) return;
+        WorldRules worldRules = instance.getWorldRules(bucketEvent.getBlockClicked().getWorld());
+        if (!worldRules.claimsEnabled) return;
 
         Player player = bucketEvent.getPlayer();
         Block block = bucketEvent.getBlockClicked().getRelative(bucketEvent.getBlockFace());
@@ -1546,9 +1552,9 @@ class PlayerEventHandler implements Listener
         }
 
         //otherwise no wilderness dumping in creative mode worlds
-        else if (instance.creativeRulesApply(block.getLocation()))
+        else if (worldRules.creativeRules)
         {
-            if (block.getY() >= instance.getSeaLevel(block.getWorld()) - 5 && !player.hasPermission("griefprevention.lava"))
+            if (block.getY() >= worldRules.seaLevel - 5 && !player.hasPermission("griefprevention.lava"))
             {
                 if (bucketEvent.getBucket() == Material.LAVA_BUCKET)
                 {
@@ -1579,7 +1585,7 @@ class PlayerEventHandler implements Listener
         }
 
         //log any suspicious placements (check sea level, world type, and adjacent blocks)
-        if (block.getY() >= instance.getSeaLevel(block.getWorld()) - 5 && !player.hasPermission("griefprevention.lava") && block.getWorld().getEnvironment() != Environment.NETHER)
+        if (block.getY() >= worldRules.seaLevel - 5 && !player.hasPermission("griefprevention.lava") && block.getWorld().getEnvironment() != Environment.NETHER)
         {
             //if certain blocks are nearby, it's less suspicious and not worth logging
             Set<Material> exclusionAdjacentTypes;
@@ -1727,33 +1733,12 @@ class PlayerEventHandler implements Listener
             }
         }
 
+        //what the clicked block requires, worked out for each material when the config loaded
+        InteractionRules interactionRules = instance.interactionRules;
+        InteractionRules.BlockRule blockRule = clickedBlock == null ? InteractionRules.BlockRule.NONE : interactionRules.getBlockRule(clickedBlock, action);
+
         //apply rules for containers and crafting blocks
-        if (clickedBlock != null && instance.config_claims_preventTheft && (
-                event.getAction() == Action.RIGHT_CLICK_BLOCK && (
-                        (this.isInventoryHolder(clickedBlock) && clickedBlock.getType() != Material.LECTERN) ||
-                                clickedBlockType == Material.ANVIL ||
-                                clickedBlockType == Material.BEACON ||
-                                clickedBlockType == Material.BEE_NEST ||
-                                clickedBlockType == Material.BEEHIVE ||
-                                clickedBlockType == Material.BELL ||
-                                clickedBlockType == Material.CAKE ||
-                                clickedBlockType == Material.CARTOGRAPHY_TABLE ||
-                                clickedBlockType == Material.CAULDRON ||
-                                clickedBlockType == Material.CAVE_VINES ||
-                                clickedBlockType == Material.CAVE_VINES_PLANT ||
-                                clickedBlockType == Material.CHIPPED_ANVIL ||
-                                clickedBlockType == Material.DAMAGED_ANVIL ||
-                                clickedBlockType == Material.GRINDSTONE ||
-                                clickedBlockType == Material.JUKEBOX ||
-                                clickedBlockType == Material.LOOM ||
-                                clickedBlockType == Material.PUMPKIN ||
-                                clickedBlockType == Material.RESPAWN_ANCHOR ||
-                                clickedBlockType == Material.ROOTED_DIRT ||
-                                clickedBlockType == Material.STONECUTTER ||
-                                clickedBlockType == Material.SWEET_BERRY_BUSH ||
-                                Tag.CANDLES.isTagged(clickedBlockType) ||
-                                Tag.CANDLE_CAKES.isTagged(clickedBlockType)
-                        )))
+        if (blockRule == InteractionRules.BlockRule.CONTAINER)
         {
             if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
 
@@ -1797,37 +1782,8 @@ class PlayerEventHandler implements Listener
             }
         }
 
-        //otherwise apply rules for doors and beds, if configured that way
-        else if (clickedBlock != null &&
-
-                (instance.config_claims_lockWoodenDoors && Tag.WOODEN_DOORS.isTagged(clickedBlockType) ||
-
-                instance.config_claims_preventButtonsSwitches && Tag.BEDS.isTagged(clickedBlockType) ||
-
-                instance.config_claims_lockTrapDoors && Tag.WOODEN_TRAPDOORS.isTagged(clickedBlockType) ||
-
-                instance.config_claims_lecternReadingRequiresAccessTrust && clickedBlockType == Material.LECTERN ||
-
-                instance.config_claims_lockFenceGates && Tag.FENCE_GATES.isTagged(clickedBlockType)))
-        {
-            if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-            Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
-            if (claim != null)
-            {
-                playerData.lastClaim = claim;
-
-                Supplier<String> noAccessReason = claim.checkPermission(player, ClaimPermission.Access, event);
-                if (noAccessReason != null)
-                {
-                    event.setCancelled(true);
-                    GriefPrevention.sendMessage(player, TextMode.Err, noAccessReason.get());
-                    return;
-                }
-            }
-        }
-
-        //otherwise apply rules for buttons and switches
-        else if (clickedBlock != null && instance.config_claims_preventButtonsSwitches && (Tag.BUTTONS.isTagged(clickedBlockType) || clickedBlockType == Material.LEVER))
+        //otherwise apply rules for doors, beds, buttons, switches and cake, as configured
+        else if (blockRule == InteractionRules.BlockRule.ACCESS)
         {
             if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
@@ -1845,36 +1801,8 @@ class PlayerEventHandler implements Listener
             }
         }
 
-        //otherwise apply rule for cake
-        else if (clickedBlock != null && instance.config_claims_preventTheft && (clickedBlockType == Material.CAKE || Tag.CANDLE_CAKES.isTagged(clickedBlockType)))
-        {
-            if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-            Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
-            if (claim != null)
-            {
-                playerData.lastClaim = claim;
-
-                Supplier<String> noContainerReason = claim.checkPermission(player, ClaimPermission.Access, event);
-                if (noContainerReason != null)
-                {
-                    event.setCancelled(true);
-                    GriefPrevention.sendMessage(player, TextMode.Err, noContainerReason.get());
-                    return;
-                }
-            }
-        }
-
         //apply rule for note blocks and repeaters and daylight sensors //RoboMWM: Include flower pots
-        else if (clickedBlock != null &&
-                (
-                        clickedBlockType == Material.NOTE_BLOCK ||
-                                clickedBlockType == Material.REPEATER ||
-                                clickedBlockType == Material.DRAGON_EGG ||
-                                clickedBlockType == Material.DAYLIGHT_DETECTOR ||
-                                clickedBlockType == Material.COMPARATOR ||
-                                clickedBlockType == Material.REDSTONE_WIRE ||
-                                Tag.FLOWER_POTS.isTagged(clickedBlockType)
-                ))
+        else if (blockRule == InteractionRules.BlockRule.BUILD)
         {
             if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
@@ -1901,28 +1829,12 @@ class PlayerEventHandler implements Listener
             ItemStack itemInHand = instance.getItemInHand(player, hand);
             Material materialInHand = itemInHand.getType();
 
-            Set<Material> spawn_eggs = new HashSet<>();
-            Set<Material> dyes = new HashSet<>();
-
-            for (Material material : Material.values())
-            {
-                if (material.isLegacy()) continue;
-                if (material.name().endsWith("_SPAWN_EGG"))
-                    spawn_eggs.add(material);
-                else if (material.name().endsWith("_DYE"))
-                    dyes.add(material);
-            }
+            //what the item requires, worked out for each material when the config loaded
+            InteractionRules.ItemRule itemRule = clickedBlock == null ? InteractionRules.ItemRule.NONE : interactionRules.getItemRule(materialInHand);
 
             //if it's bonemeal, armor stand, spawn egg, etc - check for build permission //RoboMWM: also check flint and steel to stop TNT ignition
             //add glowing ink sac and ink sac, due to their usage on signs
-            if (clickedBlock != null && (materialInHand == Material.BONE_MEAL
-                    || materialInHand == Material.ARMOR_STAND
-                    || (spawn_eggs.contains(materialInHand) && GriefPrevention.instance.config_claims_preventGlobalMonsterEggs)
-                    || materialInHand == Material.END_CRYSTAL
-                    || materialInHand == Material.FLINT_AND_STEEL
-                    || materialInHand == Material.INK_SAC
-                    || materialInHand == Material.GLOW_INK_SAC
-                    || dyes.contains(materialInHand)))
+            if (itemRule == InteractionRules.ItemRule.BUILD)
             {
                 String noBuildReason = instance
                         .allowBuild(player, clickedBlock
@@ -1936,7 +1848,7 @@ class PlayerEventHandler implements Listener
 
                 return;
             }
-            else if (clickedBlock != null && Tag.ITEMS_BOATS.isTagged(materialInHand))
+            else if (itemRule == InteractionRules.ItemRule.BOAT)
             {
                 if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
                 Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
@@ -1954,12 +1866,7 @@ class PlayerEventHandler implements Listener
             }
 
             //survival world minecart placement requires container trust, which is the permission required to remove the minecart later
-            else if (clickedBlock != null &&
-                    (materialInHand == Material.MINECART ||
-                            materialInHand == Material.FURNACE_MINECART ||
-                            materialInHand == Material.CHEST_MINECART ||
-                            materialInHand == Material.TNT_MINECART ||
-                            materialInHand == Material.HOPPER_MINECART) &&
+            else if (itemRule == InteractionRules.ItemRule.MINECART &&
                     !instance.creativeRulesApply(clickedBlock.getLocation()))
             {
                 if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
@@ -1978,21 +1885,7 @@ class PlayerEventHandler implements Listener
             }
 
             //if it's a spawn egg, minecart, or boat, and this is a creative world, apply special rules
-            else if (clickedBlock != null && (materialInHand == Material.MINECART ||
-                    materialInHand == Material.FURNACE_MINECART ||
-                    materialInHand == Material.CHEST_MINECART ||
-                    materialInHand == Material.TNT_MINECART ||
-                    materialInHand == Material.ARMOR_STAND ||
-                    materialInHand == Material.ITEM_FRAME ||
-                    materialInHand == Material.GLOW_ITEM_FRAME ||
-                    spawn_eggs.contains(materialInHand) ||
-                    materialInHand == Material.INFESTED_STONE ||
-                    materialInHand == Material.INFESTED_COBBLESTONE ||
-                    materialInHand == Material.INFESTED_STONE_BRICKS ||
-                    materialInHand == Material.INFESTED_MOSSY_STONE_BRICKS ||
-                    materialInHand == Material.INFESTED_CRACKED_STONE_BRICKS ||
-                    materialInHand == Material.INFESTED_CHISELED_STONE_BRICKS ||
-                    materialInHand == Material.HOPPER_MINECART) &&
+            else if ((itemRule == InteractionRules.ItemRule.MINECART || itemRule == InteractionRules.ItemRule.CREATIVE_ENTITY) &&
                     instance.creativeRulesApply(clickedBlock.getLocation()))
             {
                 //player needs build permission at this location
@@ -2250,7 +2143,18 @@ class PlayerEventHandler implements Listener
                 int minHeight = maxHeight - 10;
                 minHeight = Math.max(minHeight, clickedBlock.getWorld().getMinHeight());
 
-                Claim cachedClaim = null;
+                //find the top level claim over each column in the brush, all in one pass
+                int sizeZ = maxz - minz + 1;
+                long[] columns = new long[(maxx - minx + 1) * sizeZ];
+                for (int x = minx; x <= maxx; x++)
+                {
+                    for (int z = minz; z <= maxz; z++)
+                    {
+                        columns[(x - minx) * sizeZ + z - minz] = DataStore.packBlockPosition(x, maxHeight, z);
+                    }
+                }
+                Claim[] columnClaims = this.dataStore.getClaimsAt(centerBlock.getWorld(), columns, true, true);
+
                 for (int x = minx; x <= maxx; x++)
                 {
                     for (int z = minz; z <= maxz; z++)
@@ -2259,6 +2163,10 @@ class PlayerEventHandler implements Listener
                         Location location = new Location(centerBlock.getWorld(), x, centerBlock.getY(), z);
                         if (location.distance(centerBlock.getLocation()) > playerData.fillRadius) continue;
 
+                        //claims extend up to the sky, so everything in this column from the claim's bottom up is claimed
+                        Claim columnClaim = columnClaims[(x - minx) * sizeZ + z - minz];
+                        int claimMinY = columnClaim == null ? Integer.MAX_VALUE : columnClaim.getLesserBoundaryCorner().getBlockY();
+
                         //default fill block is initially the first from the allowed fill blocks list above
                         Material defaultFiller = allowedFillBlocks.get(0);
 
@@ -2288,12 +2196,7 @@ class PlayerEventHandler implements Listener
                             Block block = centerBlock.getWorld().getBlockAt(x, y, z);
 
                             //respect claims
-                            Claim claim = this.dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
-                            if (claim != null)
-                            {
-                                cachedClaim = claim;
-                                break;
-                            }
+                            if (y >= claimMinY) break;
 
                             //only replace air, spilling water, snow, long grass
                             if (block.getType() == Material.AIR || block.getType() == Material.SNOW || (block.getType() == Material.WATER && ((Levelled) block.getBlockData()).getLevel() != 0) || block.getType() == Material.GRASS)
@@ -2684,27 +2587,6 @@ class PlayerEventHandler implements Listener
         }
     }
 
-    //determines whether a block type is an inventory holder.  uses a caching strategy to save cpu time
-    private final ConcurrentHashMap<Material, Boolean> inventoryHolderCache = new ConcurrentHashMap<>();
-
-    private boolean isInventoryHolder(Block clickedBlock)
-    {
-
-        Material cacheKey = clickedBlock.getType();
-        Boolean cachedValue = this.inventoryHolderCache.get(cacheKey);
-        if (cachedValue != null)
-        {
-            return cachedValue.booleanValue();
-
-        }
-        else
-        {
-            boolean isHolder = clickedBlock.getState() instanceof InventoryHolder;
-            this.inventoryHolderCache.put(cacheKey, isHolder);
-            return isHolder;
-        }
-    }
-
     private boolean onLeftClickWatchList(Material material)
     {
         switch (material)
@@ -56,29 +56,48 @@ class RestoreNatureExecutionTask implements Runnable
     }
 
 
+    //finds the top level claim over each column being restored, all in one pass
+    private Claim[] getColumnClaims()
+    {
+        int sizeX = this.snapshots.length - 2;
+        int sizeZ = this.snapshots[0][0].length - 2;
+        if (sizeX <= 0 || sizeZ <= 0) return new Claim[0];
+
+        long[] positions = new long[sizeX * sizeZ];
+        for (int x = 1; x <= sizeX; x++)
+        {
+            for (int z = 1; z <= sizeZ; z++)
+            {
+                Location location = this.snapshots[x][0][z].location;
+                positions[(x - 1) * sizeZ + z - 1] = DataStore.packBlockPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            }
+        }
+
+        return GriefPrevention.instance.dataStore.getClaimsAt(this.lesserCorner.getWorld(), positions, true, true);
+    }
+
     @Override
     public void run()
     {
         //apply changes to the world, but ONLY to unclaimed blocks
         //note that the edge of the results is not applied (the 1-block-wide band around the outside of the chunk)
         //those data were sent to the processing thread for referernce purposes, but aren't part of the area selected for restoration
-        Claim cachedClaim = null;
+        Claim[] columnClaims = this.getColumnClaims();
         for (int x = 1; x < this.snapshots.length - 1; x++)
         {
             for (int z = 1; z < this.snapshots[0][0].length - 1; z++)
             {
+                //claims extend up to the sky, so everything in this column from the claim's bottom up is claimed
+                Claim columnClaim = columnClaims[(x - 1) * (this.snapshots[0][0].length - 2) + z - 1];
+                int claimMinY = columnClaim == null ? Integer.MAX_VALUE : columnClaim.getLesserBoundaryCorner().getBlockY();
+
                 for (int y = this.miny; y < this.snapshots[0].length; y++)
                 {
                     BlockSnapshot blockUpdate = this.snapshots[x][y][z];
                     Block currentBlock = blockUpdate.location.getBlock();
                     if (blockUpdate.typeId != currentBlock.getType() || !blockUpdate.data.equals(currentBlock.getBlockData()))
                     {
-                        Claim claim = GriefPrevention.instance.dataStore.getClaimAt(blockUpdate.location, false, cachedClaim);
-                        if (claim != null)
-                        {
-                            cachedClaim = claim;
-                            break;
-                        }
+                        if (blockUpdate.location.getBlockY() >= claimMinY) break;
 
                         try
                         {
@@ -0,0 +1,72 @@
+/*
+    GriefPrevention Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.World;
+
+//the config settings which depend on the world, worked out once when the config loads
+//event handlers get these with one lookup (see GriefPrevention.getWorldRules()) instead of one per setting
+//never modified once built, a config reload replaces them all
+final class WorldRules
+{
+    //null for worlds which weren't loaded when the config was read
+    final ClaimsMode claimsMode;
+
+    //whether players can create claims
+    final boolean claimsEnabled;
+
+    //whether creative anti-grief rules apply
+    final boolean creativeRules;
+
+    //whether claims are required to build
+    final boolean claimsRequired;
+
+    //whether pvp anti-grief rules apply
+    final boolean pvpRules;
+
+    //whether /siege is allowed
+    final boolean siegeEnabled;
+
+    //sea level, after any override from the config
+    final int seaLevel;
+
+    private WorldRules(ClaimsMode claimsMode, boolean pvpRules, boolean siegeEnabled, int seaLevel)
+    {
+        this.claimsMode = claimsMode;
+        this.claimsEnabled = claimsMode != null && claimsMode != ClaimsMode.Disabled;
+        this.creativeRules = claimsMode == ClaimsMode.Creative;
+        this.claimsRequired = claimsMode == ClaimsMode.Creative || claimsMode == ClaimsMode.SurvivalRequiringClaims;
+        this.pvpRules = pvpRules;
+        this.siegeEnabled = siegeEnabled;
+        this.seaLevel = seaLevel;
+    }
+
+    //works out a world's rules from the plugin's loaded config
+    static WorldRules compile(GriefPrevention plugin, World world)
+    {
+        Boolean pvpRules = plugin.config_pvp_specifiedWorlds.get(world);
+        Integer seaLevelOverride = plugin.config_seaLevelOverride.get(world.getName());
+
+        return new WorldRules(
+                plugin.config_claims_worldModes.get(world),
+                pvpRules != null ? pvpRules : world.getPVP(),
+                plugin.config_siege_enabledWorlds.contains(world),
+                seaLevelOverride == null || seaLevelOverride == -1 ? world.getSeaLevel() : seaLevelOverride);
+    }
+}
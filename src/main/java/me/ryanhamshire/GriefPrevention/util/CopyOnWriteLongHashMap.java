@@ -0,0 +1,184 @@
+package me.ryanhamshire.GriefPrevention.util;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A hash map keyed by primitive {@code long} values whose copies share storage.
+ *
+ * <p>Entries are grouped into shards by a caller-supplied function, and each
+ * shard is a {@link LongHashMap}. {@link #copy()} shares every shard with the
+ * copy; afterwards, the first change to a shard in either map copies only that
+ * shard. Keys which are usually changed together should share a shard.
+ *
+ * <p>This implementation is not thread-safe, but a map which is no longer
+ * modified may be read from any thread, even while its copies are modified.
+ *
+ * @param <V> the type of mapped values
+ */
+public class CopyOnWriteLongHashMap<V>
+{
+
+    private final LongUnaryOperator shardOf;
+    private LongHashMap<LongHashMap<V>> shards;
+    private int size;
+
+    // Whether the shard table and which shards belong to this map alone and may be modified in place.
+    private boolean ownsShardTable;
+    private final Set<LongHashMap<V>> ownedShards = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Construct a new empty map.
+     *
+     * @param shardOf maps each key to the key of the shard holding it
+     */
+    public CopyOnWriteLongHashMap(LongUnaryOperator shardOf)
+    {
+        this(shardOf, new LongHashMap<>(), 0);
+        this.ownsShardTable = true;
+    }
+
+    private CopyOnWriteLongHashMap(LongUnaryOperator shardOf, LongHashMap<LongHashMap<V>> shards, int size)
+    {
+        this.shardOf = shardOf;
+        this.shards = shards;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return true if the map contains no entries
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key the key
+     * @return the mapped value or null if the key is not present
+     */
+    public V get(long key)
+    {
+        LongHashMap<V> shard = this.shards.get(this.shardOf.applyAsLong(key));
+        return shard == null ? null : shard.get(key);
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key the key
+     * @return true if the key is mapped to a value
+     */
+    public boolean containsKey(long key)
+    {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any existing mapping.
+     *
+     * @param key the key
+     * @param value the non-null value
+     * @return the previously mapped value or null if there was none
+     */
+    public V put(long key, V value)
+    {
+        Objects.requireNonNull(value, "value");
+
+        V previous = this.editShard(this.shardOf.applyAsLong(key)).put(key, value);
+        if (previous == null) this.size++;
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for a key.
+     *
+     * @param key the key
+     * @return the previously mapped value or null if there was none
+     */
+    public V remove(long key)
+    {
+        // Nothing is copied unless the key is actually present.
+        if (!this.containsKey(key)) return null;
+
+        long shardKey = this.shardOf.applyAsLong(key);
+        LongHashMap<V> shard = this.editShard(shardKey);
+        V previous = shard.remove(key);
+        this.size--;
+
+        if (shard.isEmpty())
+        {
+            this.shards.remove(shardKey);
+            this.ownedShards.remove(shard);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Performs an action for every entry in the map.
+     *
+     * @param action the action, accepting each value and its key
+     */
+    public void forEach(ObjLongConsumer<? super V> action)
+    {
+        this.shards.forEach((shard, shardKey) -> shard.forEach(action));
+    }
+
+    /**
+     * Creates a map with the same entries which shares this map's storage.
+     *
+     * <p>Both maps copy a shard the first time they change it from then on,
+     * so neither sees the other's changes.
+     *
+     * @return the copy
+     */
+    public CopyOnWriteLongHashMap<V> copy()
+    {
+        this.ownsShardTable = false;
+        this.ownedShards.clear();
+        return new CopyOnWriteLongHashMap<>(this.shardOf, this.shards, this.size);
+    }
+
+    /**
+     * Gets a shard for modification, copying it and the shard table first if they're shared.
+     *
+     * @param shardKey the shard's key
+     * @return the shard, created if it didn't exist
+     */
+    private LongHashMap<V> editShard(long shardKey)
+    {
+        if (!this.ownsShardTable)
+        {
+            this.shards = this.shards.clone();
+            this.ownsShardTable = true;
+        }
+
+        LongHashMap<V> shard = this.shards.get(shardKey);
+        if (shard != null && this.ownedShards.contains(shard)) return shard;
+
+        shard = shard == null ? new LongHashMap<>() : shard.clone();
+        this.shards.put(shardKey, shard);
+        this.ownedShards.add(shard);
+        return shard;
+    }
+
+}
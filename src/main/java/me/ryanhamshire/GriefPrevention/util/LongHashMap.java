@@ -0,0 +1,246 @@
+package me.ryanhamshire.GriefPrevention.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A hash map keyed by primitive {@code long} values.
+ *
+ * <p>Keys are stored unboxed in an open-addressed table using linear probing,
+ * so lookups never allocate. Null values are not permitted; a null value slot
+ * marks an empty bucket.
+ *
+ * <p>This implementation is not thread-safe.
+ *
+ * @param <V> the type of mapped values
+ */
+public class LongHashMap<V> implements Cloneable
+{
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5F;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Construct a new empty map.
+     */
+    public LongHashMap()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct a new empty map sized to hold the given number of entries without resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public LongHashMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.allocate(capacity);
+    }
+
+    private void allocate(int capacity)
+    {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads key bits so that sequential keys do not cluster.
+     *
+     * @param key the key
+     * @return the starting bucket for the key
+     */
+    private int slot(long key)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return true if the map contains no entries
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key the key
+     * @return the mapped value or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        for (int i = this.slot(key); ; i = (i + 1) & this.mask)
+        {
+            Object value = this.values[i];
+            if (value == null) return null;
+            if (this.keys[i] == key) return (V) value;
+        }
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key the key
+     * @return true if the key is mapped to a value
+     */
+    public boolean containsKey(long key)
+    {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any existing mapping.
+     *
+     * @param key the key
+     * @param value the non-null value
+     * @return the previously mapped value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        Objects.requireNonNull(value, "value");
+
+        int i = this.slot(key);
+        for (; this.values[i] != null; i = (i + 1) & this.mask)
+        {
+            if (this.keys[i] == key)
+            {
+                V previous = (V) this.values[i];
+                this.values[i] = value;
+                return previous;
+            }
+        }
+
+        this.keys[i] = key;
+        this.values[i] = value;
+        if (++this.size > this.resizeThreshold)
+        {
+            this.rehash(this.keys.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key.
+     *
+     * @param key the key
+     * @return the previously mapped value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        int i = this.slot(key);
+        for (; ; i = (i + 1) & this.mask)
+        {
+            if (this.values[i] == null) return null;
+            if (this.keys[i] == key) break;
+        }
+
+        V previous = (V) this.values[i];
+        this.values[i] = null;
+        this.size--;
+
+        // Shift any following entries of the probe sequence back into the freed bucket.
+        int free = i;
+        for (int j = (i + 1) & this.mask; this.values[j] != null; j = (j + 1) & this.mask)
+        {
+            int home = this.slot(this.keys[j]);
+            // Move the entry if its home bucket is not cyclically between the free bucket and itself.
+            if (free <= j ? (home <= free || home > j) : (home <= free && home > j))
+            {
+                this.keys[free] = this.keys[j];
+                this.values[free] = this.values[j];
+                this.values[j] = null;
+                free = j;
+            }
+        }
+
+        return previous;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Performs an action for every entry in the map.
+     *
+     * @param action the action, accepting each value and its key
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super V> action)
+    {
+        for (int i = 0; i < this.values.length; i++)
+        {
+            Object value = this.values[i];
+            if (value != null) action.accept((V) value, this.keys[i]);
+        }
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++)
+        {
+            if (oldValues[i] == null) continue;
+
+            int slot = this.slot(oldKeys[i]);
+            while (this.values[slot] != null) slot = (slot + 1) & this.mask;
+            this.keys[slot] = oldKeys[i];
+            this.values[slot] = oldValues[i];
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public LongHashMap<V> clone()
+    {
+        try
+        {
+            LongHashMap<V> clone = (LongHashMap<V>) super.clone();
+            clone.keys = this.keys.clone();
+            clone.values = this.values.clone();
+            return clone;
+        }
+        catch (CloneNotSupportedException e)
+        {
+            throw new Error(e);
+        }
+    }
+
+}
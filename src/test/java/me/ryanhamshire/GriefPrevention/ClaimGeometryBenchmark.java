@@ -0,0 +1,127 @@
+package me.ryanhamshire.GriefPrevention;
+
+import me.ryanhamshire.GriefPrevention.util.BoundingBox;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares claim containment and overlap checks using cached bounds against the previous
+ * implementation, which built {@link BoundingBox BoundingBoxes} from the corner locations on every call.
+ *
+ * <p>Run with {@code java -cp <test classpath> org.openjdk.jmh.Main ClaimGeometryBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClaimGeometryBenchmark
+{
+    private static final int SAMPLES = 1024;
+
+    private Claim claim;
+    private Claim[] others;
+    private Location[] locations;
+
+    @Setup
+    public void setup()
+    {
+        World world = MockWorlds.create("world");
+        this.claim = newClaim(world, -50, 0, -50, 50, 50);
+
+        Random random = new Random(0);
+        this.locations = new Location[SAMPLES];
+        this.others = new Claim[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            // Roughly half of the samples fall inside the claim.
+            this.locations[i] = new Location(world, random.nextInt(200) - 100, random.nextInt(384) - 64, random.nextInt(200) - 100);
+
+            int x = random.nextInt(400) - 200;
+            int z = random.nextInt(400) - 200;
+            this.others[i] = newClaim(world, x, 0, z, x + 20, z + 20);
+        }
+    }
+
+    private static Claim newClaim(World world, int x1, int y1, int z1, int x2, int z2)
+    {
+        return new Claim(new Location(world, x1, y1, z1), new Location(world, x2, 0, z2), null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), 1L);
+    }
+
+    @Benchmark
+    public void containsCached(Blackhole blackhole)
+    {
+        for (Location location : this.locations)
+        {
+            blackhole.consume(this.claim.contains(location, false, false));
+        }
+    }
+
+    @Benchmark
+    public void containsLegacy(Blackhole blackhole)
+    {
+        for (Location location : this.locations)
+        {
+            blackhole.consume(legacyContains(this.claim, location, false));
+        }
+    }
+
+    @Benchmark
+    public void overlapsCached(Blackhole blackhole)
+    {
+        for (Claim other : this.others)
+        {
+            blackhole.consume(this.claim.overlaps(other));
+        }
+    }
+
+    @Benchmark
+    public void overlapsLegacy(Blackhole blackhole)
+    {
+        for (Claim other : this.others)
+        {
+            blackhole.consume(legacyOverlaps(this.claim, other));
+        }
+    }
+
+    // Previous Claim#contains for a top level claim without subdivisions.
+    private static boolean legacyContains(Claim claim, Location location, boolean ignoreHeight)
+    {
+        if (!Objects.equals(location.getWorld(), claim.lesserBoundaryCorner.getWorld())) return false;
+
+        BoundingBox boundingBox = new BoundingBox(claim);
+        int x = location.getBlockX();
+        int z = location.getBlockZ();
+
+        if (ignoreHeight) return boundingBox.contains2d(x, z);
+
+        return boundingBox.contains(x, location.getBlockY(), z);
+    }
+
+    // Previous Claim#overlaps.
+    private static boolean legacyOverlaps(Claim claim, Claim otherClaim)
+    {
+        if (!Objects.equals(claim.lesserBoundaryCorner.getWorld(), otherClaim.getLesserBoundaryCorner().getWorld())) return false;
+
+        return new BoundingBox(claim).intersects(new BoundingBox(otherClaim));
+    }
+
+}
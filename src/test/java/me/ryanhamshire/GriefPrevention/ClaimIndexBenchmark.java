@@ -0,0 +1,104 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the claim index with a single claim of varying size surrounded by ordinary small claims.
+ *
+ * <p>{@code lookup} measures {@link ClaimIndex#getTopLevelClaimAt(Location, boolean)} latency around the claim.
+ * {@code index} measures registering the claim in an index; run it with {@code -prof gc} to see the
+ * memory its index entries take.
+ *
+ * <p>Run with {@code java -cp <test classpath> org.openjdk.jmh.Main ClaimIndexBenchmark -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClaimIndexBenchmark
+{
+    private static final int SAMPLES = 1024;
+    private static final int SMALL_CLAIMS = 1000;
+
+    @Param({ "10", "100", "1000", "10000", "20000", "30000" })
+    public int size;
+
+    private Claim claim;
+    private ClaimIndex index;
+    private Location[] locations;
+
+    @Setup
+    public void setup()
+    {
+        World world = MockWorlds.create("world");
+        int half = this.size / 2;
+        this.claim = newClaim(world, 1L, -half, -half, this.size - half - 1, this.size - half - 1);
+
+        // Scatter small claims in a ring just outside the large one.
+        ClaimIndex.Builder builder = ClaimIndex.EMPTY.edit();
+        builder.add(this.claim);
+        Random random = new Random(0);
+        for (int i = 0; i < SMALL_CLAIMS; i++)
+        {
+            double angle = random.nextDouble() * Math.PI * 2;
+            int distance = half * 2 + 100 + random.nextInt(500);
+            int x = (int) (Math.cos(angle) * distance);
+            int z = (int) (Math.sin(angle) * distance);
+            builder.add(newClaim(world, i + 2L, x, z, x + 9, z + 9));
+        }
+        this.index = builder.build();
+
+        // Look up locations both inside and around the large claim.
+        this.locations = new Location[SAMPLES];
+        int spread = this.size + 200;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            this.locations[i] = new Location(world, random.nextInt(spread) - spread / 2, 64, random.nextInt(spread) - spread / 2);
+        }
+    }
+
+    private static Claim newClaim(World world, long id, int x1, int z1, int x2, int z2)
+    {
+        Claim claim = new Claim(new Location(world, x1, 0, z1), new Location(world, x2, 0, z2), null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), id);
+        claim.inDataStore = true;
+        return claim;
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole)
+    {
+        for (Location location : this.locations)
+        {
+            blackhole.consume(this.index.getTopLevelClaimAt(location, true));
+        }
+    }
+
+    @Benchmark
+    public ClaimIndex index()
+    {
+        ClaimIndex.Builder builder = ClaimIndex.EMPTY.edit();
+        builder.add(this.claim);
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,79 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ClaimSubdivisionIndexTest
+{
+    private final World world = MockWorlds.create("world");
+
+    private Claim newClaim(int x1, int z1, int x2, int z2)
+    {
+        return new Claim(new Location(this.world, x1, 0, z1), new Location(this.world, x2, 0, z2), null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null);
+    }
+
+    @Test
+    public void testFewSubdivisionsSkipGrid()
+    {
+        Claim[] claims = { newClaim(0, 0, 9, 9), newClaim(20, 20, 29, 29) };
+        ClaimSubdivisionIndex index = new ClaimSubdivisionIndex(claims);
+        assertSame(claims, index.getCandidates(1000, 1000));
+    }
+
+    @Test
+    public void testCandidatesMatchLinearScan()
+    {
+        // A town of 20x20 plots, each 8x8 with a 2 block road between them.
+        List<Claim> plots = new ArrayList<>();
+        for (int x = 0; x < 20; x++)
+        {
+            for (int z = 0; z < 20; z++)
+            {
+                plots.add(newClaim(x * 10, z * 10, x * 10 + 7, z * 10 + 7));
+            }
+        }
+        Claim[] claims = plots.toArray(new Claim[0]);
+        ClaimSubdivisionIndex index = new ClaimSubdivisionIndex(claims);
+
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++)
+        {
+            Location location = new Location(this.world, random.nextInt(260) - 30, 64, random.nextInt(260) - 30);
+            assertEquals(findIn(claims, location), findIn(index.getCandidates(location.getBlockX(), location.getBlockZ()), location));
+        }
+    }
+
+    @Test
+    public void testCandidatesKeepParentOrder()
+    {
+        Claim[] claims = new Claim[ClaimSubdivisionIndex.GRID_THRESHOLD];
+        for (int i = 0; i < claims.length; i++)
+        {
+            // Every subdivision covers the origin.
+            claims[i] = newClaim(-i, -i, i, i);
+        }
+        ClaimSubdivisionIndex index = new ClaimSubdivisionIndex(claims);
+        assertArrayEquals(claims, index.getCandidates(0, 0));
+    }
+
+    private static Claim findIn(Claim[] candidates, Location location)
+    {
+        for (Claim claim : candidates)
+        {
+            if (claim.contains(location, true, false)) return claim;
+        }
+        return null;
+    }
+
+}
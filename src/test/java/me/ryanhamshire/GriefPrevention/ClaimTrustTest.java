@@ -0,0 +1,128 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClaimTrustTest
+{
+    private static final UUID BUILDER = UUID.fromString("2b7a7e6c-64a4-4d5e-9d0c-0b6d3a5f1e01");
+    private static final UUID MANAGER = UUID.fromString("2b7a7e6c-64a4-4d5e-9d0c-0b6d3a5f1e02");
+
+    private Claim newClaim()
+    {
+        World world = MockWorlds.create("world");
+        return new Claim(new Location(world, 0, 0, 0), new Location(world, 9, 0, 9), null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), 1L);
+    }
+
+    @Test
+    public void testPlayerTrust()
+    {
+        Claim claim = newClaim();
+        claim.setPermission(BUILDER.toString().toUpperCase(), ClaimPermission.Build);
+        claim.setPermission(MANAGER.toString(), ClaimPermission.Manage);
+
+        assertTrue(claim.hasExplicitPermission(BUILDER, ClaimPermission.Access));
+        assertTrue(claim.hasExplicitPermission(BUILDER, ClaimPermission.Build));
+        assertFalse(claim.hasExplicitPermission(BUILDER, ClaimPermission.Manage));
+        assertTrue(claim.hasExplicitPermission(MANAGER, ClaimPermission.Manage));
+        assertEquals(ClaimPermission.Build, claim.getPermission(BUILDER.toString()));
+
+        claim.dropPermission(BUILDER.toString());
+        claim.dropPermission(MANAGER.toString());
+        assertFalse(claim.hasExplicitPermission(BUILDER, ClaimPermission.Access));
+        assertFalse(claim.hasExplicitPermission(MANAGER, ClaimPermission.Manage));
+        assertTrue(claim.managers.isEmpty());
+    }
+
+    @Test
+    public void testPermissionsRoundTrip()
+    {
+        Claim claim = newClaim();
+        claim.setPermission(BUILDER.toString(), ClaimPermission.Build);
+        claim.setPermission("public", ClaimPermission.Access);
+        claim.setPermission("[some.node]", ClaimPermission.Inventory);
+        claim.setPermission(MANAGER.toString(), ClaimPermission.Manage);
+        claim.setPermission(MANAGER.toString(), ClaimPermission.Manage);
+
+        ArrayList<String> builders = new ArrayList<>();
+        ArrayList<String> containers = new ArrayList<>();
+        ArrayList<String> accessors = new ArrayList<>();
+        ArrayList<String> managers = new ArrayList<>();
+        claim.getPermissions(builders, containers, accessors, managers);
+
+        assertEquals(Collections.singletonList(BUILDER.toString()), builders);
+        assertEquals(Collections.singletonList("[some.node]"), containers);
+        assertEquals(Collections.singletonList("public"), accessors);
+        assertEquals(Collections.singletonList(MANAGER.toString()), managers);
+
+        Claim copy = new Claim(claim);
+        assertTrue(copy.hasExplicitPermission(MANAGER, ClaimPermission.Manage));
+        assertEquals(ClaimPermission.Access, copy.getPermission("public"));
+        assertNull(copy.getPermission("[other.node]"));
+    }
+
+    @Test
+    public void testNodeManagerKeepsCase()
+    {
+        Claim claim = newClaim();
+        claim.setPermission("[Some.Node]", ClaimPermission.Manage);
+        claim.setPermission(MANAGER.toString().toUpperCase(), ClaimPermission.Manage);
+
+        ArrayList<String> managers = new ArrayList<>();
+        claim.getPermissions(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), managers);
+        assertEquals(Arrays.asList("[Some.Node]", MANAGER.toString()), managers);
+
+        claim.dropPermission("[some.node]");
+        managers.clear();
+        claim.getPermissions(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), managers);
+        assertEquals(Collections.singletonList(MANAGER.toString()), managers);
+    }
+
+    @Test
+    public void testNonCanonicalIDKeptByName()
+    {
+        // UUID.fromString accepts this, but it must save back exactly as it was written.
+        String odd = "1-1-1-1-1";
+        Claim claim = newClaim();
+        claim.setPermission(odd, ClaimPermission.Build);
+
+        ArrayList<String> builders = new ArrayList<>();
+        claim.getPermissions(builders, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        assertEquals(Collections.singletonList(odd), builders);
+    }
+
+    @Test
+    public void testTrusteeIndex()
+    {
+        Claim claim = newClaim();
+        claim.setPermission(BUILDER.toString(), ClaimPermission.Build);
+        claim.setPermission(MANAGER.toString(), ClaimPermission.Manage);
+        claim.setPermission("public", ClaimPermission.Access);
+        assertEquals(Set.of(BUILDER, MANAGER), claim.getTrusteeIDs());
+
+        ClaimTrusteeIndex index = new ClaimTrusteeIndex();
+        index.add(claim);
+        assertEquals(Collections.singletonList(claim), index.get(BUILDER));
+        assertEquals(Collections.singletonList(claim), index.get(MANAGER));
+
+        index.remove(BUILDER, claim);
+        assertTrue(index.get(BUILDER).isEmpty());
+
+        index.remove(claim);
+        assertTrue(index.get(MANAGER).isEmpty());
+    }
+
+}
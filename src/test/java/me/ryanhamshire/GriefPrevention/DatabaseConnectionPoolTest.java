@@ -0,0 +1,199 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatabaseConnectionPoolTest
+{
+    private static final String URL = "jdbc:h2:mem:griefprevention;DB_CLOSE_DELAY=-1";
+
+    private DatabaseConnectionPool pool;
+
+    @BeforeEach
+    public void createTable() throws SQLException
+    {
+        this.pool = newPool(2);
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow();
+             Statement statement = connection.getConnection().createStatement())
+        {
+            statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_nextclaimid (nextid INTEGER)");
+            statement.execute("DELETE FROM griefprevention_nextclaimid");
+        }
+    }
+
+    @AfterEach
+    public void closePool()
+    {
+        this.pool.close();
+    }
+
+    private static DatabaseConnectionPool newPool(int size)
+    {
+        Properties properties = new Properties();
+        properties.put("user", "sa");
+        properties.put("password", "");
+        return new DatabaseConnectionPool(URL, properties, size, 1, 200);
+    }
+
+    @Test
+    public void testConnectionIsReused() throws SQLException
+    {
+        Connection first;
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            first = connection.getConnection();
+        }
+        assertEquals(1, this.pool.getIdleCount());
+
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            assertSame(first, connection.getConnection());
+            assertEquals(0, this.pool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void testStatementsAreCached() throws SQLException
+    {
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO griefprevention_nextclaimid VALUES (?)");
+            insert.setLong(1, 1000);
+            insert.executeUpdate();
+
+            assertSame(insert, connection.prepareStatement("INSERT INTO griefprevention_nextclaimid VALUES (?)"));
+            assertNotSame(insert, connection.prepareStatement("DELETE FROM griefprevention_nextclaimid"));
+        }
+
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow();
+             ResultSet results = connection.prepareStatement("SELECT * FROM griefprevention_nextclaimid").executeQuery())
+        {
+            assertTrue(results.next());
+            assertEquals(1000, results.getLong("nextid"));
+        }
+    }
+
+    @Test
+    public void testNestedBorrowSharesTransaction() throws SQLException
+    {
+        try (DatabaseConnectionPool.PooledConnection outer = this.pool.borrow())
+        {
+            outer.getConnection().setAutoCommit(false);
+            try (DatabaseConnectionPool.PooledConnection inner = this.pool.borrow())
+            {
+                assertSame(outer, inner);
+                inner.prepareStatement("INSERT INTO griefprevention_nextclaimid VALUES (5)").executeUpdate();
+            }
+
+            //still held by the outer borrow
+            assertEquals(0, this.pool.getIdleCount());
+            outer.getConnection().rollback();
+            outer.getConnection().setAutoCommit(true);
+        }
+
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow();
+             ResultSet results = connection.prepareStatement("SELECT * FROM griefprevention_nextclaimid").executeQuery())
+        {
+            assertFalse(results.next());
+        }
+    }
+
+    @Test
+    public void testUnfinishedTransactionIsRolledBack() throws SQLException
+    {
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            connection.getConnection().setAutoCommit(false);
+            connection.prepareStatement("INSERT INTO griefprevention_nextclaimid VALUES (7)").executeUpdate();
+        }
+
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow();
+             ResultSet results = connection.prepareStatement("SELECT * FROM griefprevention_nextclaimid").executeQuery())
+        {
+            assertTrue(connection.getConnection().getAutoCommit());
+            assertFalse(results.next());
+        }
+    }
+
+    @Test
+    public void testClosedConnectionIsReplaced() throws SQLException
+    {
+        Connection first;
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            first = connection.getConnection();
+            first.close();
+        }
+        assertEquals(0, this.pool.getIdleCount());
+
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            assertNotSame(first, connection.getConnection());
+            assertFalse(connection.getConnection().isClosed());
+        }
+    }
+
+    @Test
+    public void testBorrowWaitsForFreeConnection() throws Exception
+    {
+        DatabaseConnectionPool single = newPool(1);
+        try (DatabaseConnectionPool.PooledConnection held = single.borrow())
+        {
+            //every connection is held by this thread, so another thread times out
+            CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+            {
+                try (DatabaseConnectionPool.PooledConnection connection = single.borrow())
+                {
+                    throw new IllegalStateException("borrowed a connection already in use");
+                }
+                catch (SQLException expected) { }
+            });
+            other.get();
+        }
+
+        //given back, so the other thread can have it now
+        CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(() ->
+        {
+            try (DatabaseConnectionPool.PooledConnection connection = single.borrow())
+            {
+                return !connection.getConnection().isClosed();
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        });
+        assertTrue(other.get());
+        single.close();
+    }
+
+    @Test
+    public void testClosedPoolRefusesBorrow() throws SQLException
+    {
+        Connection first;
+        try (DatabaseConnectionPool.PooledConnection connection = this.pool.borrow())
+        {
+            first = connection.getConnection();
+        }
+
+        this.pool.close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, () -> this.pool.borrow());
+    }
+}
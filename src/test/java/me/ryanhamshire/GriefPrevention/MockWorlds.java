@@ -0,0 +1,49 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.World;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+/**
+ * Minimal {@link World} stand-ins for tests and benchmarks that run without a server.
+ */
+final class MockWorlds
+{
+
+    private MockWorlds() {}
+
+    /**
+     * Create a world supporting only the methods claims need: name, UID, height limits, equality and hashing.
+     *
+     * @param name the world name
+     * @return the world
+     */
+    static World create(String name)
+    {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes());
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] { World.class },
+                (proxy, method, args) ->
+                {
+                    switch (method.getName())
+                    {
+                        case "getName":
+                        case "toString":
+                            return name;
+                        case "getUID":
+                            return uid;
+                        case "getMinHeight":
+                            return -64;
+                        case "getMaxHeight":
+                            return 320;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return uid.hashCode();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
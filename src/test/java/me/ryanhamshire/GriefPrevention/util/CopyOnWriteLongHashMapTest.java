@@ -0,0 +1,106 @@
+package me.ryanhamshire.GriefPrevention.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CopyOnWriteLongHashMapTest
+{
+    private static <V> CopyOnWriteLongHashMap<V> newMap()
+    {
+        // Small shards so the tests cross shard boundaries.
+        return new CopyOnWriteLongHashMap<>(key -> key >> 3);
+    }
+
+    private static <V> Map<Long, V> toMap(CopyOnWriteLongHashMap<V> map)
+    {
+        Map<Long, V> result = new HashMap<>();
+        map.forEach((value, key) -> result.put(key, value));
+        return result;
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        CopyOnWriteLongHashMap<String> map = newMap();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1L, "a"));
+        assertNull(map.put(100L, "b"));
+        assertEquals("a", map.put(1L, "c"));
+        assertEquals("c", map.get(1L));
+        assertEquals("b", map.get(100L));
+        assertNull(map.get(2L));
+        assertEquals(2, map.size());
+
+        assertEquals("c", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testCopiesAreIndependent()
+    {
+        CopyOnWriteLongHashMap<String> map = newMap();
+        map.put(1L, "a");
+        map.put(2L, "b");
+        map.put(100L, "c");
+
+        CopyOnWriteLongHashMap<String> copy = map.copy();
+        copy.put(3L, "d");
+        copy.remove(100L);
+        map.put(1L, "e");
+
+        assertEquals(Map.of(1L, "e", 2L, "b", 100L, "c"), toMap(map));
+        assertEquals(Map.of(1L, "a", 2L, "b", 3L, "d"), toMap(copy));
+        assertEquals(3, map.size());
+        assertEquals(3, copy.size());
+
+        // A copy of a copy shares with both.
+        CopyOnWriteLongHashMap<String> second = copy.copy();
+        second.remove(2L);
+        assertEquals("b", copy.get(2L));
+        assertEquals("b", map.get(2L));
+        assertNull(second.get(2L));
+    }
+
+    @Test
+    public void testRandomCopiesAgainstHashMap()
+    {
+        CopyOnWriteLongHashMap<Long> map = newMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        CopyOnWriteLongHashMap<Long> frozen = map.copy();
+        Map<Long, Long> frozenExpected = new HashMap<>(expected);
+        for (int i = 0; i < 20000; i++)
+        {
+            long key = random.nextInt(512) - 256;
+            if (random.nextBoolean())
+            {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+            else
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+
+            // Every so often, check the last copy wasn't changed and take another.
+            if (i % 1000 == 0)
+            {
+                assertEquals(frozenExpected, toMap(frozen));
+                frozen = map.copy();
+                frozenExpected = new HashMap<>(expected);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, toMap(map));
+        assertEquals(frozenExpected, toMap(frozen));
+    }
+}
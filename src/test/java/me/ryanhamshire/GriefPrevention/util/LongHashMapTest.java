@@ -0,0 +1,85 @@
+package me.ryanhamshire.GriefPrevention.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongHashMapTest
+{
+    @Test
+    public void testPutGet()
+    {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1L, "a"));
+        assertNull(map.put(-1L, "b"));
+        assertEquals("a", map.put(1L, "c"));
+        assertEquals("c", map.get(1L));
+        assertEquals("b", map.get(-1L));
+        assertNull(map.get(2L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        LongHashMap<String> map = new LongHashMap<>();
+        map.put(5L, "a");
+        assertEquals("a", map.remove(5L));
+        assertNull(map.remove(5L));
+        assertFalse(map.containsKey(5L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testRandomAgainstHashMap()
+    {
+        LongHashMap<Long> map = new LongHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            // Small key space forces collisions, removals and re-insertions.
+            long key = random.nextInt(512) - 256;
+            if (random.nextBoolean())
+            {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+            else
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet())
+        {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach((value, key) -> visited.put(key, value));
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void testCloneIsIndependent()
+    {
+        LongHashMap<String> map = new LongHashMap<>();
+        map.put(1L, "a");
+        LongHashMap<String> clone = map.clone();
+        clone.put(2L, "b");
+        clone.remove(1L);
+        assertEquals("a", map.get(1L));
+        assertNull(map.get(2L));
+        assertEquals(1, clone.size());
+    }
+}